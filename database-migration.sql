@@ -0,0 +1,6 @@
+\c bank_card_management;
+
+ALTER TABLE Carte ADD COLUMN IF NOT EXISTS dernierIdOperationAnalyse INT NOT NULL DEFAULT 0;
+
+ALTER TABLE AlerteFraude ADD COLUMN IF NOT EXISTS cleDedup VARCHAR(120);
+CREATE UNIQUE INDEX IF NOT EXISTS alertefraude_clededup_key ON AlerteFraude (cleDedup);
@@ -25,6 +25,7 @@ CREATE TABLE Carte (
     plafondMensuel DECIMAL(10,2),
     tauxInteret DECIMAL(5,2),
     soldeDisponible DECIMAL(10,2),
+    dernierIdOperationAnalyse INT NOT NULL DEFAULT 0,
     FOREIGN KEY (idClient) REFERENCES Client(id) ON DELETE CASCADE
 );
 
@@ -44,5 +45,6 @@ CREATE TABLE AlerteFraude (
     niveau niveau_alerte NOT NULL,
     idCarte INT NOT NULL,
     dateCreation TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    cleDedup VARCHAR(120) UNIQUE,
     FOREIGN KEY (idCarte) REFERENCES Carte(id) ON DELETE CASCADE
 );
\ No newline at end of file
@@ -0,0 +1,97 @@
+package com.bank.bench;
+
+import com.bank.entity.OperationCarte;
+import com.bank.service.FraudHit;
+import com.bank.service.rule.HighAmountRule;
+import com.bank.service.rule.MultipleAttemptsRule;
+import com.bank.service.rule.RapidOperationsRule;
+import com.bank.service.rule.VelocityRule;
+import com.bank.service.rule.VelocityStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The three fraud rules, both over a full card history (the sweep path) and
+ * against the velocity store for a freshly saved operation (the online path).
+ * The online path only reads the last few operations of each card, so its
+ * score should not move with {@code historySize}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FraudRulesBenchmark {
+    private static final int CARDS = 1024;
+
+    @Param({HighAmountRule.NAME, RapidOperationsRule.NAME, MultipleAttemptsRule.NAME})
+    public String rule;
+
+    @Param({"16", "256", "4096"})
+    public int historySize;
+
+    private VelocityRule fraudRule;
+    private List<OperationCarte> history;
+    private VelocityStore store;
+    private int[] slots;
+    private OperationCarte[] latest;
+
+    @Setup
+    public void setUp() {
+        fraudRule = switch (rule) {
+            case HighAmountRule.NAME -> new HighAmountRule(new BigDecimal("5000"));
+            case RapidOperationsRule.NAME -> new RapidOperationsRule(30);
+            case MultipleAttemptsRule.NAME -> new MultipleAttemptsRule(5, 60);
+            default -> throw new IllegalArgumentException("Unknown rule " + rule);
+        };
+        history = SyntheticOperations.cardHistory(1, historySize, 42);
+
+        store = new VelocityStore(fraudRule.lookback() + 1);
+        slots = new int[CARDS];
+        latest = new OperationCarte[CARDS];
+        for (int card = 0; card < CARDS; card++) {
+            List<OperationCarte> operations = SyntheticOperations.cardHistory(card + 1, store.depth(), card);
+            for (OperationCarte op : operations) {
+                slots[card] = store.record(op.cardId(), op.id(), op.date().toEpochSecond(ZoneOffset.UTC),
+                    op.amountCents(), store.internLocation(op.location()));
+                latest[card] = op;
+            }
+        }
+    }
+
+    @Benchmark
+    public List<FraudHit> evaluateHistory() {
+        List<FraudHit> hits = new ArrayList<>();
+        fraudRule.evaluate(history, 0, hits);
+        return hits;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CARDS)
+    public int evaluateLatest() {
+        int hits = 0;
+        for (int card = 0; card < CARDS; card++) {
+            if (fraudRule.evaluateLatest(store, slots[card], latest[card]) != null) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
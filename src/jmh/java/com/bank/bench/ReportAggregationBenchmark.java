@@ -0,0 +1,108 @@
+package com.bank.bench;
+
+import com.bank.entity.OperationCarte;
+import com.bank.entity.TypeOperation;
+import com.bank.util.SpaceSaving;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The in-memory report aggregations: the {@code Collectors.groupingBy} shapes
+ * RapportService used before the reports moved to SQL and rollups, next to
+ * their long-cents and sketch counterparts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportAggregationBenchmark {
+    @Param({"10000", "200000"})
+    public int operations;
+
+    @Param({"2000"})
+    public int cards;
+
+    private List<OperationCarte> ledger;
+
+    @Setup
+    public void setUp() {
+        ledger = SyntheticOperations.ledger(operations, cards, 42);
+    }
+
+    @Benchmark
+    public List<Map.Entry<Integer, Long>> top5ByGroupingBy() {
+        return ledger.stream()
+            .collect(Collectors.groupingBy(OperationCarte::cardId, Collectors.counting()))
+            .entrySet().stream()
+            .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
+            .limit(5)
+            .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<SpaceSaving.Entry> top5BySketch() {
+        SpaceSaving sketch = new SpaceSaving(1024);
+        for (OperationCarte op : ledger) {
+            sketch.add(op.cardId(), 1);
+        }
+        return sketch.top(5);
+    }
+
+    @Benchmark
+    public Map<TypeOperation, BigDecimal> sumByTypeBigDecimal() {
+        return ledger.stream()
+            .collect(Collectors.groupingBy(
+                OperationCarte::type,
+                Collectors.reducing(BigDecimal.ZERO, OperationCarte::amount, BigDecimal::add)
+            ));
+    }
+
+    @Benchmark
+    public Map<TypeOperation, Long> sumByTypeCents() {
+        return ledger.stream()
+            .collect(Collectors.groupingBy(
+                OperationCarte::type,
+                () -> new EnumMap<>(TypeOperation.class),
+                Collectors.summingLong(OperationCarte::amountCents)
+            ));
+    }
+
+    @Benchmark
+    public Map<Integer, BigDecimal> sumPerCardBigDecimal() {
+        return ledger.stream()
+            .collect(Collectors.groupingBy(
+                OperationCarte::cardId,
+                Collectors.reducing(BigDecimal.ZERO, OperationCarte::amount, BigDecimal::add)
+            ));
+    }
+
+    @Benchmark
+    public Map<Integer, Long> sumPerCardCents() {
+        return ledger.stream()
+            .collect(Collectors.groupingBy(OperationCarte::cardId, Collectors.summingLong(OperationCarte::amountCents)));
+    }
+
+    @Benchmark
+    public Map<TypeOperation, Long> countByType() {
+        return ledger.stream()
+            .collect(Collectors.groupingBy(OperationCarte::type, Collectors.counting()));
+    }
+}
@@ -0,0 +1,74 @@
+package com.bank.bench;
+
+import com.bank.entity.OperationCarte;
+import com.bank.entity.TypeOperation;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded operation histories for the benchmarks, so every run measures the same data.
+ */
+public final class SyntheticOperations {
+    private static final String[] LOCATIONS = {
+        "Casablanca", "Rabat", "Marrakech", "Fes", "Tanger", "Agadir", "Paris", "Madrid", "Online", "Lyon"
+    };
+    private static final TypeOperation[] TYPES = TypeOperation.values();
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private SyntheticOperations() {
+    }
+
+    /**
+     * One card's history: gaps of half an hour to a few hours, occasional bursts
+     * of three to seven operations a minute apart, and roughly one amount in
+     * fifty above the high amount threshold.
+     */
+    public static List<OperationCarte> cardHistory(int cardId, int size, long seed) {
+        Random random = new Random(seed);
+        List<OperationCarte> operations = new ArrayList<>(size);
+        LocalDateTime date = START;
+        int burst = 0;
+        for (int i = 0; i < size; i++) {
+            if (burst == 0 && random.nextInt(40) == 0) {
+                burst = 3 + random.nextInt(5);
+            }
+            date = date.plusSeconds(burst > 0 ? 30 + random.nextInt(60) : 1800 + random.nextInt(10_800));
+            burst = Math.max(0, burst - 1);
+            operations.add(operation(random, i + 1, cardId, date));
+        }
+        return operations;
+    }
+
+    /**
+     * Operations spread over {@code cards} cards with a skewed distribution, in
+     * insertion order like a table scan returns them.
+     */
+    public static List<OperationCarte> ledger(int size, int cards, long seed) {
+        Random random = new Random(seed);
+        List<OperationCarte> operations = new ArrayList<>(size);
+        LocalDateTime date = START;
+        for (int i = 0; i < size; i++) {
+            date = date.plusSeconds(random.nextInt(120));
+            int cardId = 1 + (int) (cards * Math.pow(random.nextDouble(), 3));
+            operations.add(operation(random, i + 1, cardId, date));
+        }
+        return operations;
+    }
+
+    private static OperationCarte operation(Random random, int id, int cardId, LocalDateTime date) {
+        long cents = random.nextInt(50) == 0
+            ? 500_000 + random.nextInt(1_000_000)
+            : 100 + (long) (Math.exp(random.nextDouble() * 10) * 10);
+        return new OperationCarte(
+            id,
+            date,
+            cents,
+            TYPES[random.nextInt(TYPES.length)],
+            LOCATIONS[random.nextInt(LOCATIONS.length)],
+            cardId
+        );
+    }
+}
@@ -0,0 +1,87 @@
+package com.bank.dao;
+
+import com.bank.bench.SyntheticOperations;
+import com.bank.entity.OperationCarte;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row mapping of OperationDAO against an in-memory ResultSet, so the score is
+ * the cost of the getters and the entity, not of the driver or the network.
+ * The proxy adds a constant cost per getter; compare runs, not absolute numbers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OperationMappingBenchmark {
+    private static final int ROWS = 10_000;
+
+    private final OperationDAO operationDAO = new OperationDAO();
+    private Object[][] rows;
+    private Map<String, Integer> columns;
+
+    @Setup
+    public void setUp() {
+        List<OperationCarte> operations = SyntheticOperations.ledger(ROWS, 2_000, 42);
+        rows = new Object[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            OperationCarte op = operations.get(i);
+            rows[i] = new Object[] {
+                op.id(), Timestamp.valueOf(op.date()), op.amount(), op.type().name(), op.location(), op.cardId()
+            };
+        }
+
+        columns = new HashMap<>();
+        String[] names = {"id", "date", "montant", "type", "lieu", "idCarte"};
+        for (int i = 0; i < names.length; i++) {
+            columns.put(names[i], i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void mapRows(Blackhole blackhole) throws SQLException {
+        ResultSet rs = resultSet();
+        while (rs.next()) {
+            blackhole.consume(operationDAO.mapResultSetToOperation(rs));
+        }
+    }
+
+    /**
+     * Forward-only ResultSet over {@link #rows}, answering the getters the DAO
+     * mappers use by column label.
+     */
+    private ResultSet resultSet() {
+        int[] cursor = {-1};
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "next" -> ++cursor[0] < rows.length;
+                case "close" -> null;
+                case "getInt", "getTimestamp", "getBigDecimal", "getString", "getObject" ->
+                    rows[cursor[0]][columns.get((String) args[0])];
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
@@ -1,9 +1,25 @@
 package com.bank;
 
+import com.bank.ui.GenerateCommand;
+import com.bank.ui.ImportCommand;
 import com.bank.ui.MenuPrincipal;
+import com.bank.ui.ServeCommand;
 
 public class Main {
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("import")) {
+            ImportCommand.run(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("generate")) {
+            GenerateCommand.run(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("serve")) {
+            ServeCommand.run(args);
+            return;
+        }
+
         MenuPrincipal menu = new MenuPrincipal();
         menu.start();
     }
@@ -0,0 +1,13 @@
+package com.bank.api;
+
+import com.bank.util.LatencyHistogram;
+
+import java.util.Map;
+
+public record ApiMetrics(
+    String executor,
+    int maxConcurrent,
+    int inFlight,
+    long rejected,
+    Map<String, LatencyHistogram.Snapshot> routes
+) {}
@@ -0,0 +1,428 @@
+package com.bank.api;
+
+import com.bank.dao.JournalMetrics;
+import com.bank.dao.OperationDAO;
+import com.bank.entity.AlerteFraude;
+import com.bank.entity.Carte;
+import com.bank.entity.CarteCredit;
+import com.bank.entity.CarteDebit;
+import com.bank.entity.CartePrepayee;
+import com.bank.entity.NiveauAlerte;
+import com.bank.entity.OperationCarte;
+import com.bank.entity.TypeOperation;
+import com.bank.service.AuthorizationPolicy;
+import com.bank.service.AuthorizationResult;
+import com.bank.service.AuthorizationService;
+import com.bank.service.CarteService;
+import com.bank.service.FraudeService;
+import com.bank.service.IngestionScheduler;
+import com.bank.service.ShardMetrics;
+import com.bank.util.DatabaseConnection;
+import com.bank.util.LatencyHistogram;
+import com.bank.util.PoolMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Embedded JSON API over {@code com.sun.net.httpserver}. Each request runs on a
+ * virtual thread when the JVM has them (Java 21+) and on a bounded platform
+ * thread pool otherwise. A semaphore caps the requests doing work at once;
+ * a request that cannot get a permit within the queue timeout is answered 503,
+ * so overload sheds load instead of piling up on the connection pool.
+ */
+public class ApiServer implements AutoCloseable {
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+    private static final ThreadLocal<Boolean> SHEDDING = ThreadLocal.withInitial(() -> false);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String executorName;
+    private final int maxConcurrent;
+    private final long queueTimeoutMillis;
+    private final Semaphore permits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    private final FraudeService fraudService;
+    private final AuthorizationService authorizationService;
+    private final CarteService cardService;
+
+    public ApiServer(int port, int maxConcurrent, long queueTimeoutMillis, AuthorizationPolicy policy) throws IOException {
+        this(port, maxConcurrent, queueTimeoutMillis, policy, new FraudeService());
+    }
+
+    public ApiServer(int port, int maxConcurrent, long queueTimeoutMillis, AuthorizationPolicy policy,
+                     FraudeService fraudService) throws IOException {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("Concurrency limit must be positive");
+        }
+
+        this.maxConcurrent = maxConcurrent;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.fraudService = fraudService;
+        this.authorizationService = new AuthorizationService(fraudService, policy);
+        this.cardService = new CarteService();
+
+        ExecutorService virtual = virtualThreadExecutor();
+        this.executor = virtual != null ? virtual : boundedExecutor(maxConcurrent * 2);
+        this.executorName = virtual != null ? "virtual-threads" : "platform-pool-" + maxConcurrent * 2;
+
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/api/authorizations", exchange -> handle(exchange, "POST /api/authorizations", "POST", this::authorize));
+        server.createContext("/api/cards/", exchange -> handle(exchange, cardRoute(exchange.getRequestURI()), "GET", this::card));
+        server.createContext("/api/alerts", exchange -> handle(exchange, "GET /api/alerts", "GET", this::alerts));
+        server.createContext("/api/metrics", exchange -> handle(exchange, "GET /api/metrics", "GET", e -> metricsResponse()));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public ApiMetrics metrics() {
+        Map<String, LatencyHistogram.Snapshot> routes = new LinkedHashMap<>();
+        latencies.forEach((route, histogram) -> routes.put(route, histogram.snapshot()));
+        return new ApiMetrics(executorName, maxConcurrent, inFlight.get(), rejected.sum(), routes);
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        fraudService.shutdown();
+    }
+
+    private Response authorize(HttpExchange exchange) throws IOException, SQLException {
+        Map<String, String> body = Json.parseObject(readBody(exchange));
+        int cardId = Integer.parseInt(required(body, "cardId"));
+        BigDecimal amount = new BigDecimal(required(body, "amount"));
+        TypeOperation type = TypeOperation.valueOf(required(body, "type").toUpperCase());
+        String location = body.get("location");
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+
+        AuthorizationResult authorization = authorizationService.authorize(cardId, amount, type, location);
+        Map<String, Object> stages = new LinkedHashMap<>();
+        authorization.stages().forEach((stage, duration) -> stages.put(stage, micros(duration)));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("decision", authorization.decision());
+        result.put("reason", authorization.reason());
+        result.put("operation", authorization.operation() == null ? null : operation(authorization.operation()));
+        result.put("rulesDeferred", authorization.rulesDeferred());
+        result.put("overBudget", authorization.overBudget());
+        result.put("elapsedMicros", micros(authorization.elapsed()));
+        result.put("stagesMicros", stages);
+        return new Response(200, result);
+    }
+
+    private Response card(HttpExchange exchange) throws SQLException {
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        if (path.length < 4 || path.length > 5 || (path.length == 5 && !path[4].equals("alerts"))) {
+            return Response.error(404, "Not found");
+        }
+
+        int cardId = Integer.parseInt(path[3]);
+        Optional<Carte> card = cardService.getCard(cardId);
+        if (card.isEmpty()) {
+            return Response.error(404, "Card not found");
+        }
+        if (path.length == 5) {
+            return new Response(200, alerts(fraudService.getCardAlerts(cardId)));
+        }
+        return new Response(200, card(card.get()));
+    }
+
+    private Response alerts(HttpExchange exchange) throws SQLException {
+        String level = queryParameter(exchange.getRequestURI(), "level");
+        List<AlerteFraude> alerts = level == null
+            ? fraudService.getAllAlerts()
+            : fraudService.getAlertsByLevel(NiveauAlerte.valueOf(level.toUpperCase()));
+        return new Response(200, alerts(alerts));
+    }
+
+    private Response metricsResponse() throws SQLException {
+        ApiMetrics metrics = metrics();
+        Map<String, Object> routes = new LinkedHashMap<>();
+        metrics.routes().forEach((route, snapshot) -> routes.put(route, snapshot(snapshot)));
+
+        Map<String, Object> pool = new LinkedHashMap<>();
+        PoolMetrics poolMetrics = DatabaseConnection.getInstance().getPoolMetrics();
+        pool.put("active", poolMetrics.active());
+        pool.put("idle", poolMetrics.idle());
+        pool.put("waiting", poolMetrics.waiting());
+        pool.put("maxSize", poolMetrics.maxSize());
+        pool.put("timeouts", poolMetrics.timeouts());
+        pool.put("wait", snapshot(poolMetrics.waitTime()));
+
+        List<Object> shards = new ArrayList<>();
+        for (ShardMetrics shard : IngestionScheduler.getInstance().metrics()) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("shard", shard.shard());
+            values.put("depth", shard.depth());
+            values.put("maxDepth", shard.maxDepth());
+            values.put("processed", shard.processed());
+            values.put("rejected", shard.rejected());
+            values.put("oldestWaitMillis", shard.oldestWaitMillis());
+            values.put("lag", snapshot(shard.lag()));
+            values.put("service", snapshot(shard.service()));
+            shards.add(values);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("executor", metrics.executor());
+        result.put("maxConcurrent", metrics.maxConcurrent());
+        result.put("inFlight", metrics.inFlight());
+        result.put("rejected", metrics.rejected());
+        result.put("routes", routes);
+        result.put("connectionPool", pool);
+        result.put("ingestionShards", shards);
+        OperationDAO.getJournal().ifPresent(journal -> result.put("journal", journal(journal.metrics())));
+        return new Response(200, result);
+    }
+
+    private void handle(HttpExchange exchange, String route, String method, Handler handler) {
+        long start = System.nanoTime();
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals(method)) {
+                send(exchange, Response.error(405, "Method not allowed"));
+                return;
+            }
+            if (SHEDDING.get()) {
+                rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, Response.error(503, "Server busy"));
+                return;
+            }
+            if (!permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, Response.error(503, "Too many concurrent requests"));
+                return;
+            }
+
+            inFlight.incrementAndGet();
+            Response response;
+            try {
+                response = handler.handle(exchange);
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                response = Response.error(400, e.getMessage());
+            } catch (RejectedExecutionException e) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                response = Response.error(503, e.getMessage());
+            } catch (SQLException e) {
+                response = Response.error(500, "Database error: " + e.getMessage());
+            } catch (RuntimeException e) {
+                response = Response.error(500, "Internal error: " + e);
+            } finally {
+                inFlight.decrementAndGet();
+                permits.release();
+            }
+            send(exchange, response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // client went away; nothing left to answer
+        } finally {
+            latencies.computeIfAbsent(route, key -> new LatencyHistogram()).record(System.nanoTime() - start);
+        }
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        byte[] bytes = Json.write(response.body()).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status(), bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body larger than " + MAX_BODY_BYTES + " bytes");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String required(Map<String, String> body, String field) {
+        String value = body.get(field);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing field " + field);
+        }
+        return value;
+    }
+
+    private static String queryParameter(URI uri, String name) {
+        String query = uri.getQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0 && pair.substring(0, equals).equals(name)) {
+                return pair.substring(equals + 1);
+            }
+        }
+        return null;
+    }
+
+    private static String cardRoute(URI uri) {
+        return uri.getPath().endsWith("/alerts") ? "GET /api/cards/{id}/alerts" : "GET /api/cards/{id}";
+    }
+
+    private static long micros(Duration duration) {
+        return TimeUnit.NANOSECONDS.toMicros(duration.toNanos());
+    }
+
+    private static Map<String, Object> operation(OperationCarte operation) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", operation.id());
+        json.put("date", operation.date());
+        json.put("amount", operation.amount());
+        json.put("type", operation.type());
+        json.put("location", operation.location());
+        json.put("cardId", operation.cardId());
+        return json;
+    }
+
+    private static Map<String, Object> card(Carte card) {
+        String number = card.getNumber();
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", card.getId());
+        json.put("number", "*".repeat(Math.max(0, number.length() - 4)) + number.substring(Math.max(0, number.length() - 4)));
+        json.put("expirationDate", card.getExpirationDate());
+        json.put("status", card.getStatus());
+        json.put("type", card.getCardType());
+        json.put("clientId", card.getClientId());
+        if (card instanceof CarteDebit cd) {
+            json.put("dailyLimit", cd.getDailyLimit());
+        } else if (card instanceof CarteCredit cc) {
+            json.put("monthlyLimit", cc.getMonthlyLimit());
+            json.put("interestRate", cc.getInterestRate());
+        } else if (card instanceof CartePrepayee cp) {
+            json.put("availableBalance", cp.getAvailableBalance());
+        }
+        return json;
+    }
+
+    private static List<Map<String, Object>> alerts(List<AlerteFraude> alerts) {
+        return alerts.stream().map(alert -> {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("id", alert.id());
+            json.put("cardId", alert.cardId());
+            json.put("level", alert.level());
+            json.put("description", alert.description());
+            json.put("creationDate", alert.creationDate());
+            return json;
+        }).toList();
+    }
+
+    private static Map<String, Object> journal(JournalMetrics metrics) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("file", metrics.file());
+        values.put("pendingOperations", metrics.pendingOperations());
+        values.put("durableBytes", metrics.durableBytes());
+        values.put("drainedBytes", metrics.drainedBytes());
+        values.put("appended", metrics.appended());
+        values.put("drained", metrics.drained());
+        values.put("forces", metrics.forces());
+        values.put("drainFailures", metrics.drainFailures());
+        values.put("deadLettered", metrics.deadLettered());
+        values.put("force", snapshot(metrics.forceTime()));
+        return values;
+    }
+
+    private static Map<String, Object> snapshot(LatencyHistogram.Snapshot snapshot) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("count", snapshot.count());
+        json.put("meanMillis", snapshot.meanMillis());
+        json.put("p50Millis", snapshot.p50Millis());
+        json.put("p90Millis", snapshot.p90Millis());
+        json.put("p99Millis", snapshot.p99Millis());
+        json.put("maxMillis", snapshot.maxMillis());
+        return json;
+    }
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()} looked up reflectively
+     * so the code still compiles and runs on Java 17.
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Platform fallback for JVMs without virtual threads. It has more threads than
+     * permits, so the surplus waits on the semaphore and times out into a 503. It
+     * has no queue: past that, the exchange is rejected and answered 503 at once
+     * on the HTTP dispatcher, with no permit wait and no database work, so the
+     * dispatcher goes straight back to accepting connections.
+     */
+    private static ExecutorService boundedExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "api-request-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, (runnable, pool) -> {
+            SHEDDING.set(true);
+            try {
+                runnable.run();
+            } finally {
+                SHEDDING.set(false);
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Response handle(HttpExchange exchange) throws IOException, SQLException;
+    }
+
+    private record Response(int status, Object body) {
+        static Response error(int status, String message) {
+            return new Response(status, Map.of("error", message == null ? "" : message));
+        }
+    }
+}
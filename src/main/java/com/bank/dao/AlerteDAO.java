@@ -2,40 +2,101 @@ package com.bank.dao;
 
 import com.bank.entity.AlerteFraude;
 import com.bank.entity.NiveauAlerte;
+import com.bank.entity.StatutCarte;
 import com.bank.util.DatabaseConnection;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public class AlerteDAO {
 
     public AlerteFraude save(AlerteFraude alert) throws SQLException {
-        String sql = "INSERT INTO AlerteFraude (description, niveau, idCarte, dateCreation) VALUES (?, ?::niveau_alerte, ?, ?) RETURNING id";
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, alert.description());
-            stmt.setString(2, alert.level().name());
-            stmt.setInt(3, alert.cardId());
-            stmt.setTimestamp(4, Timestamp.valueOf(alert.creationDate()));
+        String sql = "INSERT INTO AlerteFraude (description, niveau, idCarte, dateCreation, cleDedup) VALUES (?, ?::niveau_alerte, ?, ?, ?) RETURNING id";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            bindAlert(stmt, alert);
 
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
-                int id = rs.getInt("id");
-                return new AlerteFraude(id, alert.description(), alert.level(), alert.cardId(), alert.creationDate());
+                return withId(alert, rs.getInt("id"));
             }
             throw new SQLException("Failed to create alert");
         }
     }
 
+    /**
+     * Inserts the alerts whose dedup key is new and, in the same transaction, sets
+     * the status mapped to each inserted key on its card. An alert and the card
+     * action it triggers are committed together, so a retry that finds the alert
+     * already there never leaves the card unchanged. BLOCKED wins over SUSPENDED.
+     */
+    public List<AlerteFraude> saveAllIfAbsent(List<AlerteFraude> alerts, Map<String, StatutCarte> cardStatusByKey) throws SQLException {
+        Map<String, AlerteFraude> byKey = new LinkedHashMap<>();
+        for (AlerteFraude alert : alerts) {
+            if (alert.dedupKey() == null) {
+                throw new IllegalArgumentException("Batched alerts require a dedup key");
+            }
+            byKey.putIfAbsent(alert.dedupKey(), alert);
+        }
+
+        List<AlerteFraude> created = new ArrayList<>();
+        if (byKey.isEmpty()) {
+            return created;
+        }
+
+        StringBuilder sql = new StringBuilder("INSERT INTO AlerteFraude (description, niveau, idCarte, dateCreation, cleDedup) VALUES ");
+        sql.append(String.join(", ", Collections.nCopies(byKey.size(), "(?, ?::niveau_alerte, ?, ?, ?)")));
+        sql.append(" ON CONFLICT (cleDedup) DO NOTHING RETURNING id, cleDedup");
+        Set<Integer> toBlock = new HashSet<>();
+        Set<Integer> toSuspend = new HashSet<>();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            conn.setAutoCommit(false);
+            int index = 1;
+            for (AlerteFraude alert : byKey.values()) {
+                stmt.setString(index++, alert.description());
+                stmt.setString(index++, alert.level().name());
+                stmt.setInt(index++, alert.cardId());
+                stmt.setTimestamp(index++, Timestamp.valueOf(alert.creationDate()));
+                stmt.setString(index++, alert.dedupKey());
+            }
+
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                AlerteFraude alert = withId(byKey.get(rs.getString("cleDedup")), rs.getInt("id"));
+                created.add(alert);
+                StatutCarte status = cardStatusByKey.get(alert.dedupKey());
+                if (status == StatutCarte.BLOCKED) {
+                    toBlock.add(alert.cardId());
+                } else if (status == StatutCarte.SUSPENDED) {
+                    toSuspend.add(alert.cardId());
+                }
+            }
+            toSuspend.removeAll(toBlock);
+
+            CarteDAO.updateStatus(conn, toBlock, StatutCarte.BLOCKED);
+            CarteDAO.updateStatus(conn, toSuspend, StatutCarte.SUSPENDED);
+            conn.commit();
+        }
+        toBlock.addAll(toSuspend);
+        if (!toBlock.isEmpty()) {
+            CarteDAO.invalidateCached(toBlock);
+        }
+        return created;
+    }
+
     public Optional<AlerteFraude> findById(int id) throws SQLException {
         String sql = "SELECT * FROM AlerteFraude WHERE id = ?";
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
 
@@ -49,9 +110,8 @@ public class AlerteDAO {
     public List<AlerteFraude> findAll() throws SQLException {
         String sql = "SELECT * FROM AlerteFraude ORDER BY dateCreation DESC";
         List<AlerteFraude> alerts = new ArrayList<>();
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
 
             while (rs.next()) {
@@ -64,9 +124,8 @@ public class AlerteDAO {
     public List<AlerteFraude> findByCarteId(int cardId) throws SQLException {
         String sql = "SELECT * FROM AlerteFraude WHERE idCarte = ? ORDER BY dateCreation DESC";
         List<AlerteFraude> alerts = new ArrayList<>();
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, cardId);
             ResultSet rs = stmt.executeQuery();
 
@@ -80,9 +139,8 @@ public class AlerteDAO {
     public List<AlerteFraude> findByLevel(NiveauAlerte level) throws SQLException {
         String sql = "SELECT * FROM AlerteFraude WHERE niveau = ?::niveau_alerte ORDER BY dateCreation DESC";
         List<AlerteFraude> alerts = new ArrayList<>();
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, level.name());
             ResultSet rs = stmt.executeQuery();
 
@@ -99,22 +157,34 @@ public class AlerteDAO {
 
     public boolean delete(int id) throws SQLException {
         String sql = "DELETE FROM AlerteFraude WHERE id = ?";
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             int rowsAffected = stmt.executeUpdate();
             return rowsAffected > 0;
         }
     }
 
+    private void bindAlert(PreparedStatement stmt, AlerteFraude alert) throws SQLException {
+        stmt.setString(1, alert.description());
+        stmt.setString(2, alert.level().name());
+        stmt.setInt(3, alert.cardId());
+        stmt.setTimestamp(4, Timestamp.valueOf(alert.creationDate()));
+        stmt.setString(5, alert.dedupKey());
+    }
+
+    private AlerteFraude withId(AlerteFraude alert, int id) {
+        return new AlerteFraude(id, alert.description(), alert.level(), alert.cardId(), alert.creationDate(), alert.dedupKey());
+    }
+
     private AlerteFraude mapResultSetToAlert(ResultSet rs) throws SQLException {
         return new AlerteFraude(
             rs.getInt("id"),
             rs.getString("description"),
             NiveauAlerte.valueOf(rs.getString("niveau")),
             rs.getInt("idCarte"),
-            rs.getTimestamp("dateCreation").toLocalDateTime()
+            rs.getTimestamp("dateCreation").toLocalDateTime(),
+            rs.getString("cleDedup")
         );
     }
 }
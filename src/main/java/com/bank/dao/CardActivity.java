@@ -0,0 +1,9 @@
+package com.bank.dao;
+
+import java.time.LocalDateTime;
+
+public record CardActivity(
+    LocalDateTime hour,
+    int cardId,
+    long operations
+) {}
@@ -1,22 +1,37 @@
 package com.bank.dao;
 
 import com.bank.entity.*;
+import com.bank.util.CacheStats;
 import com.bank.util.DatabaseConnection;
+import com.bank.util.LruCache;
+import com.bank.util.Money;
 
 import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class CarteDAO {
+    private static final int CACHE_SIZE = 10_000;
+    private static final long CACHE_TTL_MILLIS = 60_000;
+
+    private static final LruCache<Integer, Carte> cache = new LruCache<>(CACHE_SIZE, CACHE_TTL_MILLIS);
+    private static final PrepaidBalances balances = new PrepaidBalances();
+
+    public static CacheStats getCacheStats() {
+        return cache.stats();
+    }
 
     public Carte save(Carte card) throws SQLException {
         String sql = "INSERT INTO Carte (numero, dateExpiration, statut, typeCarte, idClient, plafondJournalier, plafondMensuel, tauxInteret, soldeDisponible) VALUES (?, ?, ?::statut_carte, ?::type_carte, ?, ?, ?, ?, ?) RETURNING id";
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, card.getNumber());
             stmt.setDate(2, Date.valueOf(card.getExpirationDate()));
             stmt.setString(3, card.getStatus().name());
@@ -44,6 +59,7 @@ public class CarteDAO {
             if (rs.next()) {
                 int id = rs.getInt("id");
                 card.setId(id);
+                cache.put(id, copyOf(card));
                 return card;
             }
             throw new SQLException("Failed to create card");
@@ -51,15 +67,22 @@ public class CarteDAO {
     }
 
     public Optional<Carte> findById(int id) throws SQLException {
-        String sql = "SELECT * FROM Carte WHERE id = ?";
-        Connection conn = DatabaseConnection.getInstance().getConnection();
+        Optional<Carte> cached = cache.get(id);
+        if (cached.isPresent()) {
+            return Optional.of(copyOf(cached.get()));
+        }
 
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        long generation = cache.generation();
+        String sql = "SELECT * FROM Carte WHERE id = ?";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                return Optional.of(mapResultSetToCard(rs));
+                Carte card = mapResultSetToCard(rs);
+                cache.putIfGeneration(id, copyOf(card), generation);
+                return Optional.of(card);
             }
             return Optional.empty();
         }
@@ -68,9 +91,8 @@ public class CarteDAO {
     public List<Carte> findAll() throws SQLException {
         String sql = "SELECT * FROM Carte";
         List<Carte> cards = new ArrayList<>();
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
 
             while (rs.next()) {
@@ -80,12 +102,40 @@ public class CarteDAO {
         return cards;
     }
 
+    public List<Carte> findByStatus(Collection<StatutCarte> statuses) throws SQLException {
+        String sql = "SELECT * FROM Carte WHERE statut = ANY(?::statut_carte[])";
+        List<Carte> cards = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("varchar", statuses.stream().map(Enum::name).toArray()));
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                cards.add(mapResultSetToCard(rs));
+            }
+        }
+        return cards;
+    }
+
+    public BitSet findAllIds() throws SQLException {
+        String sql = "SELECT id FROM Carte";
+        BitSet ids = new BitSet();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                ids.set(rs.getInt("id"));
+            }
+        }
+        return ids;
+    }
+
     public List<Carte> findByClientId(int clientId) throws SQLException {
         String sql = "SELECT * FROM Carte WHERE idClient = ?";
         List<Carte> cards = new ArrayList<>();
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, clientId);
             ResultSet rs = stmt.executeQuery();
 
@@ -96,50 +146,224 @@ public class CarteDAO {
         return cards;
     }
 
+    /**
+     * Writes the card's details. Status and prepaid balance are left out: they
+     * change through {@link #updateStatus} and the atomic debits and credits, and
+     * the copy in memory may be stale by the time it is saved.
+     */
     public boolean update(Carte card) throws SQLException {
-        String sql = "UPDATE Carte SET numero = ?, dateExpiration = ?, statut = ?::statut_carte, plafondJournalier = ?, plafondMensuel = ?, tauxInteret = ?, soldeDisponible = ? WHERE id = ?";
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        String sql = "UPDATE Carte SET numero = ?, dateExpiration = ?, plafondJournalier = ?, plafondMensuel = ?, tauxInteret = ? WHERE id = ?";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, card.getNumber());
             stmt.setDate(2, Date.valueOf(card.getExpirationDate()));
-            stmt.setString(3, card.getStatus().name());
 
             if (card instanceof CarteDebit cd) {
-                stmt.setBigDecimal(4, cd.getDailyLimit());
+                stmt.setBigDecimal(3, cd.getDailyLimit());
+                stmt.setNull(4, Types.NUMERIC);
                 stmt.setNull(5, Types.NUMERIC);
-                stmt.setNull(6, Types.NUMERIC);
-                stmt.setNull(7, Types.NUMERIC);
             } else if (card instanceof CarteCredit cc) {
-                stmt.setNull(4, Types.NUMERIC);
-                stmt.setBigDecimal(5, cc.getMonthlyLimit());
-                stmt.setBigDecimal(6, cc.getInterestRate());
-                stmt.setNull(7, Types.NUMERIC);
-            } else if (card instanceof CartePrepayee cp) {
+                stmt.setNull(3, Types.NUMERIC);
+                stmt.setBigDecimal(4, cc.getMonthlyLimit());
+                stmt.setBigDecimal(5, cc.getInterestRate());
+            } else {
+                stmt.setNull(3, Types.NUMERIC);
                 stmt.setNull(4, Types.NUMERIC);
                 stmt.setNull(5, Types.NUMERIC);
-                stmt.setNull(6, Types.NUMERIC);
-                stmt.setBigDecimal(7, cp.getAvailableBalance());
             }
 
-            stmt.setInt(8, card.getId());
+            stmt.setInt(6, card.getId());
 
             int rowsAffected = stmt.executeUpdate();
+            cache.invalidate(card.getId());
             return rowsAffected > 0;
         }
     }
 
-    public boolean delete(int id) throws SQLException {
-        String sql = "DELETE FROM Carte WHERE id = ?";
-        Connection conn = DatabaseConnection.getInstance().getConnection();
+    /**
+     * Moves the card to {@code status} if it is in a state allowed to reach it;
+     * false when it is not (or is already there).
+     */
+    public boolean updateStatus(int cardId, StatutCarte status) throws SQLException {
+        String sql = "UPDATE Carte SET statut = ?::statut_carte WHERE id = ? AND statut = ANY(?::statut_carte[])";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, status.name());
+            stmt.setInt(2, cardId);
+            stmt.setArray(3, conn.createArrayOf("varchar", allowedFrom(status)));
+            boolean updated = stmt.executeUpdate() > 0;
+            if (updated) {
+                cache.invalidate(cardId);
+            }
+            return updated;
+        }
+    }
+
+    /**
+     * Status update on the caller's connection, for a caller that commits it with
+     * other writes. The caller invalidates the cached cards once committed.
+     */
+    static int updateStatus(Connection conn, Collection<Integer> cardIds, StatutCarte status) throws SQLException {
+        if (cardIds.isEmpty()) {
+            return 0;
+        }
 
+        String sql = "UPDATE Carte SET statut = ?::statut_carte WHERE id = ANY(?) AND statut = ANY(?::statut_carte[])";
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, status.name());
+            stmt.setArray(2, conn.createArrayOf("integer", cardIds.toArray()));
+            stmt.setArray(3, conn.createArrayOf("varchar", allowedFrom(status)));
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Statuses a card may leave for {@code status}. A suspension never applies to
+     * a blocked card: that would lift the block. Only activation lifts either.
+     */
+    static Object[] allowedFrom(StatutCarte status) {
+        return switch (status) {
+            case ACTIVE -> new Object[] {StatutCarte.SUSPENDED.name(), StatutCarte.BLOCKED.name()};
+            case SUSPENDED -> new Object[] {StatutCarte.ACTIVE.name()};
+            case BLOCKED -> new Object[] {StatutCarte.ACTIVE.name(), StatutCarte.SUSPENDED.name()};
+        };
+    }
+
+    static void invalidateCached(Collection<Integer> cardIds) {
+        cache.invalidateAll(cardIds);
+    }
+
+    public boolean debitBalance(int cardId, BigDecimal amount) throws SQLException {
+        long cents = Money.toCents(amount);
+        PrepaidBalances.Reservation reservation = balances.reserve(cardId, cents);
+        if (reservation == PrepaidBalances.Reservation.INSUFFICIENT) {
+            return false;
+        }
+
+        String sql = "UPDATE Carte SET soldeDisponible = soldeDisponible - ? WHERE id = ? AND soldeDisponible >= ? RETURNING soldeDisponible";
+        boolean debited = false;
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setBigDecimal(1, amount);
+            stmt.setInt(2, cardId);
+            stmt.setBigDecimal(3, amount);
+            ResultSet rs = stmt.executeQuery();
+
+            if (rs.next()) {
+                debited = true;
+                if (reservation == PrepaidBalances.Reservation.UNKNOWN) {
+                    balances.learn(cardId, Money.toCents(rs.getBigDecimal("soldeDisponible")));
+                }
+            }
+        } finally {
+            if (!debited && reservation == PrepaidBalances.Reservation.RESERVED) {
+                balances.forget(cardId);
+            }
+            cache.invalidate(cardId);
+        }
+        return debited;
+    }
+
+    public boolean creditBalance(int cardId, BigDecimal amount) throws SQLException {
+        String sql = "UPDATE Carte SET soldeDisponible = soldeDisponible + ? WHERE id = ? AND soldeDisponible IS NOT NULL";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setBigDecimal(1, amount);
+            stmt.setInt(2, cardId);
+            boolean credited = stmt.executeUpdate() > 0;
+            if (credited) {
+                balances.refund(cardId, Money.toCents(amount));
+            } else {
+                balances.forget(cardId);
+            }
+            cache.invalidate(cardId);
+            return credited;
+        }
+    }
+
+    public int findDetectionWatermark(int cardId) throws SQLException {
+        String sql = "SELECT dernierIdOperationAnalyse FROM Carte WHERE id = ?";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, cardId);
+            ResultSet rs = stmt.executeQuery();
+
+            if (rs.next()) {
+                return rs.getInt("dernierIdOperationAnalyse");
+            }
+            return 0;
+        }
+    }
+
+    public Map<Integer, Integer> findAllDetectionWatermarks() throws SQLException {
+        String sql = "SELECT id, dernierIdOperationAnalyse FROM Carte WHERE dernierIdOperationAnalyse > 0";
+        Map<Integer, Integer> watermarks = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                watermarks.put(rs.getInt("id"), rs.getInt("dernierIdOperationAnalyse"));
+            }
+        }
+        return watermarks;
+    }
+
+    public boolean advanceDetectionWatermark(int cardId, int operationId) throws SQLException {
+        String sql = "UPDATE Carte SET dernierIdOperationAnalyse = ? WHERE id = ? AND dernierIdOperationAnalyse < ?";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, operationId);
+            stmt.setInt(2, cardId);
+            stmt.setInt(3, operationId);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    public void advanceDetectionWatermarks(Map<Integer, Integer> watermarks) throws SQLException {
+        if (watermarks.isEmpty()) {
+            return;
+        }
+
+        String sql = "UPDATE Carte SET dernierIdOperationAnalyse = ? WHERE id = ? AND dernierIdOperationAnalyse < ?";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<Integer, Integer> entry : watermarks.entrySet()) {
+                stmt.setInt(1, entry.getValue());
+                stmt.setInt(2, entry.getKey());
+                stmt.setInt(3, entry.getValue());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    public boolean delete(int id) throws SQLException {
+        String sql = "DELETE FROM Carte WHERE id = ?";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             int rowsAffected = stmt.executeUpdate();
+            cache.invalidate(id);
+            balances.forget(id);
             return rowsAffected > 0;
         }
     }
 
+    private static Carte copyOf(Carte card) {
+        if (card instanceof CarteDebit cd) {
+            return new CarteDebit(cd.getId(), cd.getNumber(), cd.getExpirationDate(), cd.getStatus(),
+                cd.getClientId(), cd.getDailyLimit());
+        } else if (card instanceof CarteCredit cc) {
+            return new CarteCredit(cc.getId(), cc.getNumber(), cc.getExpirationDate(), cc.getStatus(),
+                cc.getClientId(), cc.getMonthlyLimit(), cc.getInterestRate());
+        } else if (card instanceof CartePrepayee cp) {
+            return new CartePrepayee(cp.getId(), cp.getNumber(), cp.getExpirationDate(), cp.getStatus(),
+                cp.getClientId(), cp.getAvailableBalance());
+        }
+        throw new IllegalStateException("Unknown card type");
+    }
+
     private Carte mapResultSetToCard(ResultSet rs) throws SQLException {
         int id = rs.getInt("id");
         String number = rs.getString("numero");
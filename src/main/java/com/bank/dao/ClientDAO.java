@@ -12,9 +12,8 @@ public class ClientDAO {
 
     public Client save(Client client) throws SQLException {
         String sql = "INSERT INTO Client (nom, email, telephone) VALUES (?, ?, ?) RETURNING id";
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, client.name());
             stmt.setString(2, client.email());
             stmt.setString(3, client.phone());
@@ -30,9 +29,8 @@ public class ClientDAO {
 
     public Optional<Client> findById(int id) throws SQLException {
         String sql = "SELECT * FROM Client WHERE id = ?";
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
 
@@ -52,9 +50,8 @@ public class ClientDAO {
     public List<Client> findAll() throws SQLException {
         String sql = "SELECT * FROM Client";
         List<Client> clients = new ArrayList<>();
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
 
             while (rs.next()) {
@@ -72,9 +69,8 @@ public class ClientDAO {
 
     public Optional<Client> findByEmail(String email) throws SQLException {
         String sql = "SELECT * FROM Client WHERE email = ?";
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, email);
             ResultSet rs = stmt.executeQuery();
 
@@ -93,9 +89,8 @@ public class ClientDAO {
 
     public Optional<Client> findByPhone(String phone) throws SQLException {
         String sql = "SELECT * FROM Client WHERE telephone = ?";
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, phone);
             ResultSet rs = stmt.executeQuery();
 
@@ -114,9 +109,8 @@ public class ClientDAO {
 
     public boolean update(Client client) throws SQLException {
         String sql = "UPDATE Client SET nom = ?, email = ?, telephone = ? WHERE id = ?";
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, client.name());
             stmt.setString(2, client.email());
             stmt.setString(3, client.phone());
@@ -129,9 +123,8 @@ public class ClientDAO {
 
     public boolean delete(int id) throws SQLException {
         String sql = "DELETE FROM Client WHERE id = ?";
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             int rowsAffected = stmt.executeUpdate();
             return rowsAffected > 0;
@@ -0,0 +1,96 @@
+package com.bank.dao;
+
+import com.bank.util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Opens queries as lazily fetched streams. With autocommit off and a fetch size
+ * set, PostgreSQL serves the rows from a server-side cursor, so memory stays
+ * constant whatever the size of the table. The stream holds a pooled connection
+ * until it is closed and must be used in a try-with-resources block.
+ */
+final class Cursors {
+    static final int FETCH_SIZE = 5000;
+
+    interface Binder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private Cursors() {
+    }
+
+    static <T> Stream<T> stream(String sql, RowMapper<T> mapper) throws SQLException {
+        return stream(sql, stmt -> { }, mapper);
+    }
+
+    static <T> Stream<T> stream(String sql, Binder binder, RowMapper<T> mapper) throws SQLException {
+        Connection conn = DatabaseConnection.getInstance().getConnection();
+        PreparedStatement stmt = null;
+        try {
+            conn.setAutoCommit(false);
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(FETCH_SIZE);
+            binder.bind(stmt);
+            ResultSet rs = stmt.executeQuery();
+
+            PreparedStatement statement = stmt;
+            return StreamSupport.stream(new RowSpliterator<>(rs, mapper), false)
+                .onClose(() -> close(conn, statement, rs));
+        } catch (SQLException | RuntimeException e) {
+            try {
+                if (stmt != null) {
+                    stmt.close();
+                }
+                conn.close();
+            } catch (SQLException closeError) {
+                e.addSuppressed(closeError);
+            }
+            throw e;
+        }
+    }
+
+    private static void close(Connection conn, PreparedStatement stmt, ResultSet rs) {
+        try (conn; stmt; rs) {
+            conn.commit();
+        } catch (SQLException e) {
+            throw new DataAccessException(e);
+        }
+    }
+
+    private static class RowSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final ResultSet rs;
+        private final RowMapper<T> mapper;
+
+        RowSpliterator(ResultSet rs, RowMapper<T> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.rs = rs;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            try {
+                if (!rs.next()) {
+                    return false;
+                }
+                action.accept(mapper.map(rs));
+                return true;
+            } catch (SQLException e) {
+                throw new DataAccessException(e);
+            }
+        }
+    }
+}
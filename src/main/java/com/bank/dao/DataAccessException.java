@@ -0,0 +1,20 @@
+package com.bank.dao;
+
+import java.sql.SQLException;
+
+/**
+ * Carries a {@link SQLException} out of a lazily evaluated stream, where checked
+ * exceptions cannot be thrown.
+ */
+public class DataAccessException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public DataAccessException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
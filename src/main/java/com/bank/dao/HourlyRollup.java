@@ -0,0 +1,16 @@
+package com.bank.dao;
+
+import com.bank.entity.TypeCarte;
+import com.bank.entity.TypeOperation;
+
+import java.time.LocalDateTime;
+
+public record HourlyRollup(
+    LocalDateTime hour,
+    TypeOperation type,
+    TypeCarte cardType,
+    long count,
+    long sumCents,
+    long minCents,
+    long maxCents
+) {}
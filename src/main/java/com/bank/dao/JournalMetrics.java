@@ -0,0 +1,21 @@
+package com.bank.dao;
+
+import com.bank.util.LatencyHistogram;
+
+/**
+ * @param pendingOperations operations acknowledged but not yet inserted into OperationCarte
+ * @param forces group commits; {@code appended / forces} is the mean batch size
+ * @param deadLettered operations the table refused, moved to the dead-letter file
+ */
+public record JournalMetrics(
+    String file,
+    long durableBytes,
+    long drainedBytes,
+    int pendingOperations,
+    long appended,
+    long drained,
+    long forces,
+    long drainFailures,
+    long deadLettered,
+    LatencyHistogram.Snapshot forceTime
+) {}
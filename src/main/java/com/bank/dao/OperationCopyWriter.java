@@ -0,0 +1,105 @@
+package com.bank.dao;
+
+import com.bank.entity.TypeOperation;
+import com.bank.util.DatabaseConnection;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Streams operations into OperationCarte with PostgreSQL COPY. Rows are encoded
+ * in COPY text format into a local buffer and sent in large chunks, so an import
+ * costs one round trip per megabyte instead of one per row.
+ */
+public class OperationCopyWriter implements AutoCloseable {
+    private static final String COPY_SQL = "COPY OperationCarte (date, montant, type, lieu, idCarte) FROM STDIN";
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Connection conn;
+    private final CopyIn copy;
+    private final StringBuilder row = new StringBuilder(128);
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int length;
+    private boolean finished;
+
+    public OperationCopyWriter() throws SQLException {
+        this.conn = DatabaseConnection.getInstance().getConnection();
+        try {
+            this.copy = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    public void write(LocalDateTime date, BigDecimal amount, TypeOperation type, String location, int cardId) throws SQLException {
+        row.setLength(0);
+        row.append(Timestamp.valueOf(date)).append('\t')
+            .append(amount.toPlainString()).append('\t')
+            .append(type.name()).append('\t');
+        if (location == null) {
+            row.append("\\N");
+        } else {
+            escape(location);
+        }
+        row.append('\t').append(cardId).append('\n');
+
+        byte[] bytes = row.toString().getBytes(StandardCharsets.UTF_8);
+        if (length + bytes.length > buffer.length) {
+            flushBuffer();
+            if (bytes.length > buffer.length) {
+                buffer = new byte[bytes.length];
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    /**
+     * Completes the COPY and returns the number of rows the server stored.
+     */
+    public long finish() throws SQLException {
+        flushBuffer();
+        finished = true;
+        long rows = copy.endCopy();
+        OperationDAO.invalidateSpendCounters();
+        return rows;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (!finished && copy.isActive()) {
+                copy.cancelCopy();
+            }
+        } finally {
+            conn.close();
+        }
+    }
+
+    private void flushBuffer() throws SQLException {
+        if (length > 0) {
+            copy.writeToCopy(buffer, 0, length);
+            length = 0;
+        }
+    }
+
+    private void escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> row.append("\\\\");
+                case '\t' -> row.append("\\t");
+                case '\n' -> row.append("\\n");
+                case '\r' -> row.append("\\r");
+                default -> row.append(c);
+            }
+        }
+    }
+}
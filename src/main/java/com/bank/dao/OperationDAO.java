@@ -3,21 +3,39 @@ package com.bank.dao;
 import com.bank.entity.OperationCarte;
 import com.bank.entity.TypeOperation;
 import com.bank.util.DatabaseConnection;
+import com.bank.util.Money;
 
-import java.math.BigDecimal;
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
 
 public class OperationDAO {
+    private static final SpendCounters spendCounters = new SpendCounters();
+    private static volatile OperationJournal journal;
 
+    /**
+     * Saves the operation, or journals it when an {@link OperationJournal} is open;
+     * either way the returned operation carries its final id.
+     */
     public OperationCarte save(OperationCarte operation) throws SQLException {
-        String sql = "INSERT INTO OperationCarte (date, montant, type, lieu, idCarte) VALUES (?, ?, ?::type_operation, ?, ?) RETURNING id";
-        Connection conn = DatabaseConnection.getInstance().getConnection();
+        OperationJournal current = journal;
+        if (current != null) {
+            OperationCarte journaled = current.append(operation);
+            spendCounters.record(journaled.cardId(), journaled.id(), journaled.date().toLocalDate(), journaled.amountCents());
+            return journaled;
+        }
 
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        String sql = "INSERT INTO OperationCarte (date, montant, type, lieu, idCarte) VALUES (?, ?, ?::type_operation, ?, ?) RETURNING id";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setTimestamp(1, Timestamp.valueOf(operation.date()));
             stmt.setBigDecimal(2, operation.amount());
             stmt.setString(3, operation.type().name());
@@ -27,17 +45,61 @@ public class OperationDAO {
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 int id = rs.getInt("id");
-                return new OperationCarte(id, operation.date(), operation.amount(), operation.type(), operation.location(), operation.cardId());
+                spendCounters.record(operation.cardId(), id, operation.date().toLocalDate(), operation.amountCents());
+                return new OperationCarte(id, operation.date(), operation.amountCents(), operation.type(), operation.location(), operation.cardId());
             }
             throw new SQLException("Failed to create operation");
         }
     }
 
+    /**
+     * Inserts operations that already have an id, in one transaction. Ids already
+     * present are skipped, so a journal batch can be replayed after a crash.
+     */
+    void insertWithIds(List<OperationCarte> operations) throws SQLException {
+        String sql = "INSERT INTO OperationCarte (id, date, montant, type, lieu, idCarte) VALUES (?, ?, ?, ?::type_operation, ?, ?) ON CONFLICT (id) DO NOTHING";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            for (OperationCarte operation : operations) {
+                stmt.setInt(1, operation.id());
+                stmt.setTimestamp(2, Timestamp.valueOf(operation.date()));
+                stmt.setBigDecimal(3, operation.amount());
+                stmt.setString(4, operation.type().name());
+                stmt.setString(5, operation.location());
+                stmt.setInt(6, operation.cardId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            conn.commit();
+        }
+    }
+
+    /**
+     * Takes {@code count} values from the OperationCarte id sequence, in ascending order.
+     */
+    int[] reserveIds(int count) throws SQLException {
+        String sql = "SELECT nextval(pg_get_serial_sequence('operationcarte', 'id')) FROM generate_series(1, ?)";
+        int[] ids = new int[count];
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, count);
+            ResultSet rs = stmt.executeQuery();
+            for (int i = 0; i < count; i++) {
+                if (!rs.next()) {
+                    throw new SQLException("Failed to reserve operation ids");
+                }
+                ids[i] = rs.getInt(1);
+            }
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
     public Optional<OperationCarte> findById(int id) throws SQLException {
         String sql = "SELECT * FROM OperationCarte WHERE id = ?";
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
 
@@ -51,9 +113,8 @@ public class OperationDAO {
     public List<OperationCarte> findAll() throws SQLException {
         String sql = "SELECT * FROM OperationCarte";
         List<OperationCarte> operations = new ArrayList<>();
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
 
             while (rs.next()) {
@@ -66,9 +127,8 @@ public class OperationDAO {
     public List<OperationCarte> findByCardId(int cardId) throws SQLException {
         String sql = "SELECT * FROM OperationCarte WHERE idCarte = ? ORDER BY date DESC";
         List<OperationCarte> operations = new ArrayList<>();
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, cardId);
             ResultSet rs = stmt.executeQuery();
 
@@ -79,12 +139,82 @@ public class OperationDAO {
         return operations;
     }
 
+    public List<OperationCarte> findRecentByCardId(int cardId, int limit) throws SQLException {
+        return findByCard(cardId, "id <= ?", Integer.MAX_VALUE, id -> true, limit);
+    }
+
+    public List<OperationCarte> findByCardIdAfter(int cardId, int afterOperationId) throws SQLException {
+        return findByCard(cardId, "id > ?", afterOperationId, id -> id > afterOperationId, -1);
+    }
+
+    public List<OperationCarte> findRecentByCardIdUpTo(int cardId, int upToOperationId, int limit) throws SQLException {
+        return findByCard(cardId, "id <= ?", upToOperationId, id -> id <= upToOperationId, limit);
+    }
+
+    /**
+     * The card's operations whose id passes {@code idFilter} against
+     * {@code boundId}, newest first, at most {@code limit} of them (all when
+     * negative). Operations still in the journal are included: as for the spend
+     * totals, they are excluded from the query and added from the journal, so
+     * one drained while the query runs is returned once.
+     */
+    private List<OperationCarte> findByCard(int cardId, String idFilter, int boundId, IntPredicate idMatches, int limit) throws SQLException {
+        OperationJournal current = journal;
+        List<OperationCarte> pending = current == null ? List.of() : current.pending(cardId);
+
+        String sql = "SELECT * FROM OperationCarte WHERE idCarte = ? AND " + idFilter + " AND id <> ALL(?) ORDER BY date DESC"
+            + (limit < 0 ? "" : " LIMIT ?");
+        List<OperationCarte> operations = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, cardId);
+            stmt.setInt(2, boundId);
+            stmt.setArray(3, conn.createArrayOf("integer", pending.stream().map(OperationCarte::id).toArray()));
+            if (limit >= 0) {
+                stmt.setInt(4, limit);
+            }
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                operations.add(mapResultSetToOperation(rs));
+            }
+        }
+
+        if (pending.isEmpty()) {
+            return operations;
+        }
+        for (OperationCarte operation : pending) {
+            if (idMatches.test(operation.id())) {
+                operations.add(operation);
+            }
+        }
+        operations.sort(Comparator.comparing(OperationCarte::date).reversed());
+        return limit < 0 || operations.size() <= limit ? operations : new ArrayList<>(operations.subList(0, limit));
+    }
+
+    public Stream<OperationCarte> streamAfterId(int afterId) throws SQLException {
+        return Cursors.stream("SELECT * FROM OperationCarte WHERE id > ? ORDER BY id",
+            stmt -> stmt.setInt(1, afterId), this::mapResultSetToOperation);
+    }
+
+    /**
+     * Journaled operations above {@code afterId} that are not yet in OperationCarte,
+     * in id order. Empty when no journal is open.
+     */
+    public List<OperationCarte> findJournaledAfterId(int afterId) {
+        OperationJournal current = journal;
+        return current == null ? List.of() : current.pendingAfter(afterId);
+    }
+
+    public Stream<OperationCarte> streamOrderedByCard() throws SQLException {
+        return Cursors.stream("SELECT * FROM OperationCarte ORDER BY idCarte, date", this::mapResultSetToOperation);
+    }
+
     public List<OperationCarte> findByType(TypeOperation type) throws SQLException {
         String sql = "SELECT * FROM OperationCarte WHERE type = ?::type_operation";
         List<OperationCarte> operations = new ArrayList<>();
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, type.name());
             ResultSet rs = stmt.executeQuery();
 
@@ -98,9 +228,8 @@ public class OperationDAO {
     public List<OperationCarte> findByDateRange(LocalDateTime start, LocalDateTime end) throws SQLException {
         String sql = "SELECT * FROM OperationCarte WHERE date BETWEEN ? AND ? ORDER BY date DESC";
         List<OperationCarte> operations = new ArrayList<>();
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setTimestamp(1, Timestamp.valueOf(start));
             stmt.setTimestamp(2, Timestamp.valueOf(end));
             ResultSet rs = stmt.executeQuery();
@@ -115,9 +244,8 @@ public class OperationDAO {
     public List<OperationCarte> findByCardAndDateRange(int cardId, LocalDateTime start, LocalDateTime end) throws SQLException {
         String sql = "SELECT * FROM OperationCarte WHERE idCarte = ? AND date BETWEEN ? AND ? ORDER BY date DESC";
         List<OperationCarte> operations = new ArrayList<>();
-        Connection conn = DatabaseConnection.getInstance().getConnection();
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, cardId);
             stmt.setTimestamp(2, Timestamp.valueOf(start));
             stmt.setTimestamp(3, Timestamp.valueOf(end));
@@ -130,18 +258,112 @@ public class OperationDAO {
         return operations;
     }
 
-    public boolean delete(int id) throws SQLException {
-        String sql = "DELETE FROM OperationCarte WHERE id = ?";
-        Connection conn = DatabaseConnection.getInstance().getConnection();
+    public long getDailySpendCents(int cardId) throws SQLException {
+        return getSpendCents(cardId, SpendCounters.Period.DAY, LocalDate.now());
+    }
+
+    public long getMonthlySpendCents(int cardId) throws SQLException {
+        return getSpendCents(cardId, SpendCounters.Period.MONTH, LocalDate.now());
+    }
+
+    public static void invalidateSpendCounters() {
+        spendCounters.clear();
+    }
+
+    public static List<SpendCounterState> spendCounterStates() {
+        return spendCounters.states();
+    }
+
+    public static void restoreSpendCounters(List<SpendCounterState> states) {
+        states.forEach(spendCounters::restore);
+    }
+
+    /**
+     * Adds an operation saved after a snapshot to the restored spend counters;
+     * counters that already include it are left alone.
+     */
+    public static void replaySpend(OperationCarte operation) {
+        spendCounters.record(operation.cardId(), operation.id(), operation.date().toLocalDate(), operation.amountCents());
+    }
+
+    /**
+     * Drops the card's spend counters so the next check reloads them, after an
+     * operation they counted was refused by the table.
+     */
+    static void invalidateSpendCounters(int cardId) {
+        spendCounters.invalidate(cardId);
+    }
+
+    public static Optional<OperationJournal> getJournal() {
+        return Optional.ofNullable(journal);
+    }
+
+    static synchronized void attachJournal(OperationJournal opened) {
+        if (journal != null) {
+            throw new IllegalStateException("An operation journal is already open");
+        }
+        journal = opened;
+    }
+
+    static synchronized void detachJournal(OperationJournal closed) {
+        if (journal == closed) {
+            journal = null;
+        }
+    }
+
+    /**
+     * Journaled operations not yet drained are added from the journal and excluded
+     * from the SQL sum, so one drained while the query runs is counted once.
+     */
+    private long getSpendCents(int cardId, SpendCounters.Period period, LocalDate today) throws SQLException {
+        OptionalLong cached = spendCounters.current(cardId, period, today);
+        if (cached.isPresent()) {
+            return cached.getAsLong();
+        }
 
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        OperationJournal current = journal;
+        List<OperationCarte> pending = current == null ? List.of() : current.pending(cardId);
+        LocalDateTime start = period.start(today);
+        LocalDateTime end = period.end(today);
+
+        String sql = "SELECT COALESCE(SUM(montant), 0) AS total, COALESCE(MAX(id), 0) AS lastId FROM OperationCarte WHERE idCarte = ? AND date >= ? AND date < ? AND id <> ALL(?)";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, cardId);
+            stmt.setTimestamp(2, Timestamp.valueOf(start));
+            stmt.setTimestamp(3, Timestamp.valueOf(end));
+            stmt.setArray(4, conn.createArrayOf("integer", pending.stream().map(OperationCarte::id).toArray()));
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+
+            long cents = Money.toCents(rs.getBigDecimal("total"));
+            int lastId = rs.getInt("lastId");
+            for (OperationCarte operation : pending) {
+                if (!operation.date().isBefore(start) && operation.date().isBefore(end)) {
+                    cents = Money.add(cents, operation.amountCents());
+                }
+                lastId = Math.max(lastId, operation.id());
+            }
+            return spendCounters.install(cardId, period, today, cents, lastId);
+        }
+    }
+
+    public boolean delete(int id) throws SQLException {
+        String sql = "DELETE FROM OperationCarte WHERE id = ? RETURNING idCarte";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
-            int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+            ResultSet rs = stmt.executeQuery();
+
+            if (rs.next()) {
+                spendCounters.invalidate(rs.getInt("idCarte"));
+                return true;
+            }
+            return false;
         }
     }
 
-    private OperationCarte mapResultSetToOperation(ResultSet rs) throws SQLException {
+    OperationCarte mapResultSetToOperation(ResultSet rs) throws SQLException {
         return new OperationCarte(
             rs.getInt("id"),
             rs.getTimestamp("date").toLocalDateTime(),
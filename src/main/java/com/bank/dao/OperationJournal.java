@@ -0,0 +1,638 @@
+package com.bank.dao;
+
+import com.bank.entity.OperationCarte;
+import com.bank.entity.TypeOperation;
+import com.bank.util.LatencyHistogram;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Durable local queue in front of OperationCarte. While a journal is open,
+ * {@link OperationDAO#save} appends to it instead of inserting: a writer thread
+ * encodes every waiting operation, writes them with one FileChannel write, makes
+ * them durable with one {@code force} and only then acknowledges them. Ids are
+ * reserved from the table's sequence in blocks, so an acknowledged operation
+ * already carries its final id.
+ * <p>
+ * A drainer thread inserts journaled operations in batches and records how far
+ * it got in a small offset file next to the journal. On open, everything past
+ * that offset is replayed. Inserts skip ids already present, so a batch that was
+ * committed just before a crash can safely be replayed.
+ * <p>
+ * An operation the table refuses for good, such as one whose card was deleted
+ * meanwhile, was already acknowledged and its prepaid debit taken. It is moved
+ * to a dead-letter file next to the journal, in the same record layout, and the
+ * debit is refunded.
+ * <p>
+ * Record layout: payload length and CRC32 (two ints), then id, epoch second,
+ * nanos, amount in cents, type ordinal, card id and the UTF-8 location.
+ */
+public class OperationJournal implements AutoCloseable {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_ID_BLOCK = 1000;
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1024;
+    private static final int MAX_LOCATION_LENGTH = 100;
+    private static final long COMPACT_BYTES = 64L << 20;
+    private static final long MIN_RETRY_DELAY_MILLIS = 100;
+    private static final long MAX_RETRY_DELAY_MILLIS = 5_000;
+    private static final TypeOperation[] TYPES = TypeOperation.values();
+
+    private final Path file;
+    private final FileChannel channel;
+    private final FileChannel offsetChannel;
+    private final Path deadLetterFile;
+    private final FileChannel deadLetterChannel;
+    private final OperationDAO operationDAO;
+    private final CarteDAO carteDAO;
+    private final int batchSize;
+    private final int idBlock;
+    private final BlockingQueue<Append> appends = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ConcurrentHashMap<Integer, List<OperationCarte>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final Object fileLock = new Object();
+    private final Object drainSignal = new Object();
+    private final Thread writer;
+    private final Thread drainer;
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder drained = new LongAdder();
+    private final LongAdder forces = new LongAdder();
+    private final LongAdder drainFailures = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LatencyHistogram forceTime = new LatencyHistogram();
+    private volatile long durableSize;
+    private volatile long drainedOffset;
+    private volatile boolean closed;
+
+    // writer thread only
+    private int[] reservedIds = new int[0];
+    private int nextReserved;
+
+    // drainer thread only, once open: ids in the dead-letter file, and those of
+    // them whose refund has not gone through yet
+    private final Set<Integer> deadLetterIds = new HashSet<>();
+    private final Set<Integer> refundsOwed = new HashSet<>();
+
+    private record Append(OperationCarte operation, CompletableFuture<OperationCarte> result) {}
+
+    private record Batch(List<OperationCarte> operations, long end) {}
+
+    private OperationJournal(Path file, int batchSize, int idBlock, OperationDAO operationDAO, CarteDAO carteDAO) throws IOException {
+        if (batchSize < 1 || idBlock < 1) {
+            throw new IllegalArgumentException("Batch size and id block must be positive");
+        }
+
+        this.file = file;
+        this.batchSize = batchSize;
+        this.idBlock = idBlock;
+        this.operationDAO = operationDAO;
+        this.carteDAO = carteDAO;
+        this.deadLetterFile = file.resolveSibling(file.getFileName() + ".dead");
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            this.offsetChannel = FileChannel.open(file.resolveSibling(file.getFileName() + ".offset"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        try {
+            this.deadLetterChannel = FileChannel.open(deadLetterFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            channel.close();
+            offsetChannel.close();
+            throw e;
+        }
+
+        try {
+            recover();
+        } catch (IOException e) {
+            closeChannels();
+            throw e;
+        }
+
+        this.writer = new Thread(this::writeLoop, "journal-writer");
+        this.drainer = new Thread(this::drainLoop, "journal-drainer");
+        writer.setDaemon(true);
+        drainer.setDaemon(true);
+    }
+
+    public static OperationJournal open(Path file) throws IOException {
+        return open(file, DEFAULT_BATCH_SIZE, DEFAULT_ID_BLOCK);
+    }
+
+    /**
+     * Opens the journal, replays whatever the previous process left undrained
+     * and routes {@link OperationDAO#save} through it until {@link #close()}.
+     */
+    public static OperationJournal open(Path file, int batchSize, int idBlock) throws IOException {
+        return open(file, batchSize, idBlock, new OperationDAO(), new CarteDAO());
+    }
+
+    static OperationJournal open(Path file, int batchSize, int idBlock, OperationDAO operationDAO, CarteDAO carteDAO) throws IOException {
+        OperationJournal journal = new OperationJournal(file, batchSize, idBlock, operationDAO, carteDAO);
+        try {
+            OperationDAO.attachJournal(journal);
+        } catch (IllegalStateException e) {
+            journal.closeChannels();
+            throw e;
+        }
+        journal.writer.start();
+        journal.drainer.start();
+        return journal;
+    }
+
+    public JournalMetrics metrics() {
+        return new JournalMetrics(file.toString(), durableSize, drainedOffset, pendingCount.get(),
+            appended.sum(), drained.sum(), forces.sum(), drainFailures.sum(), deadLettered.sum(), forceTime.snapshot());
+    }
+
+    /**
+     * Journals the operation and returns it with its reserved id once it is on disk.
+     */
+    OperationCarte append(OperationCarte operation) throws SQLException {
+        if (operation.location() != null && operation.location().length() > MAX_LOCATION_LENGTH) {
+            throw new IllegalArgumentException("Location longer than " + MAX_LOCATION_LENGTH + " characters");
+        }
+        if (closed) {
+            throw new IllegalStateException("Operation journal is closed");
+        }
+
+        CompletableFuture<OperationCarte> result = new CompletableFuture<>();
+        try {
+            appends.put(new Append(operation, result));
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while journaling operation", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new SQLException("Operation journal write failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Operations of the card that are acknowledged but not yet in OperationCarte.
+     */
+    List<OperationCarte> pending(int cardId) {
+        return pending.getOrDefault(cardId, List.of());
+    }
+
+    List<OperationCarte> pendingAfter(int afterId) {
+        List<OperationCarte> operations = new ArrayList<>();
+        for (List<OperationCarte> cardOperations : pending.values()) {
+            for (OperationCarte operation : cardOperations) {
+                if (operation.id() > afterId) {
+                    operations.add(operation);
+                }
+            }
+        }
+        operations.sort(Comparator.comparingInt(OperationCarte::id));
+        return operations;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join();
+            drainer.interrupt();
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (Append append = appends.poll(); append != null; append = appends.poll()) {
+            append.result().completeExceptionally(new IllegalStateException("Operation journal is closed"));
+        }
+        OperationDAO.detachJournal(this);
+        closeChannels();
+    }
+
+    private void closeChannels() {
+        try {
+            channel.close();
+            offsetChannel.close();
+            deadLetterChannel.close();
+        } catch (IOException e) {
+            System.err.println("Journal: close failed: " + e.getMessage());
+        }
+    }
+
+    private void recover() throws IOException {
+        long size = channel.size();
+        long offset = readOffset();
+        if (offset > size) {
+            offset = 0;
+        }
+
+        long end = offset;
+        while (end < size) {
+            Batch batch = read(channel, end, size);
+            if (batch.operations().isEmpty()) {
+                break;
+            }
+            batch.operations().forEach(this::addPending);
+            end = batch.end();
+        }
+        if (end < size) {
+            System.err.println("Journal: discarding " + (size - end) + " bytes of incomplete records at the end of " + file);
+            channel.truncate(end);
+            channel.force(true);
+        }
+
+        drainedOffset = offset;
+        durableSize = end;
+        recoverDeadLetters();
+    }
+
+    /**
+     * Loads the ids already dead-lettered, so a replayed batch does not refund
+     * them a second time, and cuts a record torn by a crash off the end.
+     */
+    private void recoverDeadLetters() throws IOException {
+        long size = deadLetterChannel.size();
+        long end = 0;
+        while (end < size) {
+            Batch batch = read(deadLetterChannel, end, size);
+            if (batch.operations().isEmpty()) {
+                break;
+            }
+            batch.operations().forEach(operation -> deadLetterIds.add(operation.id()));
+            end = batch.end();
+        }
+        if (end < size) {
+            deadLetterChannel.truncate(end);
+            deadLetterChannel.force(true);
+        }
+    }
+
+    private void writeLoop() {
+        List<Append> batch = new ArrayList<>(batchSize);
+        while (!closed || !appends.isEmpty()) {
+            try {
+                Append first = appends.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            appends.drainTo(batch, batchSize - 1);
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<Append> batch) {
+        List<OperationCarte> written = new ArrayList<>(batch.size());
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(batch.size() * MAX_RECORD_BYTES);
+            for (Append append : batch) {
+                OperationCarte operation = append.operation();
+                OperationCarte journaled = new OperationCarte(nextId(), operation.date(), operation.amountCents(),
+                    operation.type(), operation.location(), operation.cardId());
+                encode(journaled, buffer);
+                written.add(journaled);
+            }
+            buffer.flip();
+
+            long start = System.nanoTime();
+            synchronized (fileLock) {
+                long position = durableSize;
+                try {
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                    channel.force(false);
+                } catch (IOException e) {
+                    try {
+                        channel.truncate(durableSize);
+                    } catch (IOException truncateError) {
+                        e.addSuppressed(truncateError);
+                    }
+                    throw e;
+                }
+                durableSize = position;
+            }
+            forceTime.record(System.nanoTime() - start);
+            forces.increment();
+        } catch (IOException | SQLException | RuntimeException e) {
+            for (Append append : batch) {
+                append.result().completeExceptionally(e);
+            }
+            return;
+        }
+
+        written.forEach(this::addPending);
+        appended.add(written.size());
+        synchronized (drainSignal) {
+            drainSignal.notifyAll();
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result().complete(written.get(i));
+        }
+    }
+
+    private int nextId() throws SQLException {
+        if (nextReserved == reservedIds.length) {
+            reservedIds = operationDAO.reserveIds(idBlock);
+            nextReserved = 0;
+        }
+        return reservedIds[nextReserved++];
+    }
+
+    private void drainLoop() {
+        long retryDelay = MIN_RETRY_DELAY_MILLIS;
+        while (!closed) {
+            try {
+                long from = drainedOffset;
+                long to = durableSize;
+                if (from >= to) {
+                    compactIfDrained();
+                    awaitAppends();
+                    continue;
+                }
+
+                Batch batch = read(channel, from, to);
+                if (batch.operations().isEmpty()) {
+                    throw new IOException("Unreadable journal record at offset " + from);
+                }
+                List<OperationCarte> refused = insert(batch.operations());
+                writeOffset(batch.end());
+                drainedOffset = batch.end();
+                batch.operations().forEach(this::removePending);
+                refused.forEach(operation -> OperationDAO.invalidateSpendCounters(operation.cardId()));
+                drained.add(batch.operations().size() - refused.size());
+                retryDelay = MIN_RETRY_DELAY_MILLIS;
+            } catch (IOException | SQLException e) {
+                drainFailures.increment();
+                System.err.println("Journal: drain failed, retrying in " + retryDelay + " ms: " + e.getMessage());
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (InterruptedException interrupted) {
+                    continue;
+                }
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Inserts a batch in one transaction. A constraint violation, such as an
+     * operation whose card was deleted meanwhile, would fail the batch forever, so
+     * the batch is retried row by row and the offending rows are dead-lettered.
+     * Returns the operations the table refused.
+     */
+    private List<OperationCarte> insert(List<OperationCarte> operations) throws IOException, SQLException {
+        try {
+            operationDAO.insertWithIds(operations);
+            return List.of();
+        } catch (SQLException e) {
+            if (!isConstraintViolation(e)) {
+                throw e;
+            }
+        }
+
+        List<OperationCarte> refused = new ArrayList<>();
+        for (OperationCarte operation : operations) {
+            try {
+                operationDAO.insertWithIds(List.of(operation));
+            } catch (SQLException rowError) {
+                if (!isConstraintViolation(rowError)) {
+                    throw rowError;
+                }
+                deadLetter(operation, rowError);
+                refused.add(operation);
+            }
+        }
+        return refused;
+    }
+
+    /**
+     * Writes the operation to the dead-letter file, then refunds the prepaid
+     * debit taken for it; cards that are not prepaid are left alone. The record
+     * is durable before the refund, so a crash in between leaves it on file to
+     * be settled by hand rather than refunded twice on replay.
+     */
+    private void deadLetter(OperationCarte operation, SQLException cause) throws IOException, SQLException {
+        if (deadLetterIds.add(operation.id())) {
+            ByteBuffer buffer = ByteBuffer.allocate(MAX_RECORD_BYTES);
+            encode(operation, buffer);
+            buffer.flip();
+            long position = deadLetterChannel.size();
+            try {
+                while (buffer.hasRemaining()) {
+                    position += deadLetterChannel.write(buffer, position);
+                }
+                deadLetterChannel.force(false);
+            } catch (IOException e) {
+                deadLetterIds.remove(operation.id());
+                throw e;
+            }
+            refundsOwed.add(operation.id());
+            deadLettered.increment();
+            System.err.println("Journal: operation " + operation.id() + " moved to " + deadLetterFile + ": " + cause.getMessage());
+        }
+
+        if (refundsOwed.contains(operation.id())) {
+            carteDAO.creditBalance(operation.cardId(), operation.amount());
+            refundsOwed.remove(operation.id());
+        }
+    }
+
+    private static boolean isConstraintViolation(SQLException e) {
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            if (current.getSQLState() != null && current.getSQLState().startsWith("23")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void awaitAppends() {
+        synchronized (drainSignal) {
+            if (!closed && drainedOffset >= durableSize) {
+                try {
+                    drainSignal.wait(100);
+                } catch (InterruptedException e) {
+                    // closing
+                }
+            }
+        }
+    }
+
+    private void compactIfDrained() throws IOException {
+        if (durableSize < COMPACT_BYTES) {
+            return;
+        }
+        synchronized (fileLock) {
+            if (drainedOffset != durableSize) {
+                return;
+            }
+            channel.truncate(0);
+            channel.force(true);
+            writeOffset(0);
+            durableSize = 0;
+            drainedOffset = 0;
+        }
+    }
+
+    private Batch read(FileChannel source, long from, long to) throws IOException {
+        int length = (int) Math.min(to - from, (long) batchSize * MAX_RECORD_BYTES);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (source.read(buffer, from + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+
+        List<OperationCarte> operations = new ArrayList<>();
+        while (operations.size() < batchSize) {
+            OperationCarte operation = decode(buffer);
+            if (operation == null) {
+                break;
+            }
+            operations.add(operation);
+        }
+        return new Batch(operations, from + buffer.position());
+    }
+
+    private static void encode(OperationCarte operation, ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.position(start + HEADER_BYTES);
+        buffer.putInt(operation.id());
+        buffer.putLong(operation.date().toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(operation.date().getNano());
+        buffer.putLong(operation.amountCents());
+        buffer.put((byte) operation.type().ordinal());
+        buffer.putInt(operation.cardId());
+        if (operation.location() == null) {
+            buffer.putShort((short) -1);
+        } else {
+            byte[] location = operation.location().getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) location.length);
+            buffer.put(location);
+        }
+
+        int length = buffer.position() - start - HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(start + HEADER_BYTES, length));
+        buffer.putInt(start, length);
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    /**
+     * Decodes the record at the buffer's position and moves past it, or returns
+     * null without moving if the record is incomplete or fails its checksum.
+     */
+    private static OperationCarte decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_BYTES) {
+            return null;
+        }
+        int length = buffer.getInt(start);
+        if (length <= 0 || length > MAX_RECORD_BYTES - HEADER_BYTES || buffer.remaining() < HEADER_BYTES + length) {
+            return null;
+        }
+
+        ByteBuffer payload = buffer.slice(start + HEADER_BYTES, length);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(start + 4)) {
+            return null;
+        }
+
+        int id = payload.getInt();
+        LocalDateTime date = LocalDateTime.ofEpochSecond(payload.getLong(), payload.getInt(), ZoneOffset.UTC);
+        long amountCents = payload.getLong();
+        TypeOperation type = TYPES[payload.get()];
+        int cardId = payload.getInt();
+        short locationLength = payload.getShort();
+        String location = null;
+        if (locationLength >= 0) {
+            byte[] bytes = new byte[locationLength];
+            payload.get(bytes);
+            location = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        buffer.position(start + HEADER_BYTES + length);
+        return new OperationCarte(id, date, amountCents, type, location, cardId);
+    }
+
+    private long readOffset() throws IOException {
+        if (offsetChannel.size() < 12) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(12);
+        while (buffer.hasRemaining() && offsetChannel.read(buffer, buffer.position()) >= 0) {
+            // keep reading
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, 8);
+        return (int) crc.getValue() == buffer.getInt(8) ? buffer.getLong(0) : 0;
+    }
+
+    private void writeOffset(long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(12);
+        buffer.putLong(offset);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, 8);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            offsetChannel.write(buffer, buffer.position());
+        }
+        offsetChannel.force(false);
+    }
+
+    private void addPending(OperationCarte operation) {
+        pending.merge(operation.cardId(), List.of(operation), (existing, added) -> {
+            List<OperationCarte> merged = new ArrayList<>(existing.size() + 1);
+            merged.addAll(existing);
+            merged.addAll(added);
+            return merged;
+        });
+        pendingCount.incrementAndGet();
+    }
+
+    private void removePending(OperationCarte operation) {
+        pending.computeIfPresent(operation.cardId(), (cardId, operations) -> {
+            List<OperationCarte> remaining = new ArrayList<>(operations);
+            remaining.removeIf(pendingOperation -> pendingOperation.id() == operation.id());
+            return remaining.isEmpty() ? null : remaining;
+        });
+        pendingCount.decrementAndGet();
+    }
+}
@@ -0,0 +1,11 @@
+package com.bank.dao;
+
+import com.bank.entity.TypeOperation;
+
+import java.util.List;
+import java.util.Map;
+
+public record OperationSections(
+    List<Map.Entry<Integer, Long>> topCards,
+    Map<TypeOperation, Long> periodCountByType
+) {}
@@ -0,0 +1,50 @@
+package com.bank.dao;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+class PrepaidBalances {
+    enum Reservation {
+        RESERVED,
+        INSUFFICIENT,
+        UNKNOWN
+    }
+
+    private final ConcurrentHashMap<Integer, AtomicLong> balances = new ConcurrentHashMap<>();
+
+    /**
+     * Takes {@code cents} from the known balance of a card with a CAS loop, so
+     * concurrent debits of different cards never contend and debits of the same
+     * card never block each other.
+     */
+    Reservation reserve(int cardId, long cents) {
+        AtomicLong balance = balances.get(cardId);
+        if (balance == null) {
+            return Reservation.UNKNOWN;
+        }
+
+        long current;
+        do {
+            current = balance.get();
+            if (current < cents) {
+                return Reservation.INSUFFICIENT;
+            }
+        } while (!balance.compareAndSet(current, current - cents));
+        return Reservation.RESERVED;
+    }
+
+    void refund(int cardId, long cents) {
+        AtomicLong balance = balances.get(cardId);
+        if (balance != null) {
+            balance.addAndGet(cents);
+        }
+    }
+
+    void learn(int cardId, long cents) {
+        balances.putIfAbsent(cardId, new AtomicLong(cents));
+    }
+
+    void forget(int cardId) {
+        balances.remove(cardId);
+    }
+}
@@ -0,0 +1,195 @@
+package com.bank.dao;
+
+import com.bank.entity.StatutCarte;
+import com.bank.entity.TypeCarte;
+import com.bank.entity.TypeOperation;
+import com.bank.util.DatabaseConnection;
+import com.bank.util.Money;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public class RapportDAO {
+
+    /**
+     * Computes the operation sections of the complete report with a single scan of
+     * OperationCarte: the grouping sets aggregate per card and per type in the same
+     * pass, and the window keeps only the top cards.
+     */
+    public OperationSections scanOperationSections(LocalDateTime start, LocalDateTime end, int topLimit) throws SQLException {
+        String sql = "SELECT idCarte, type, total, inPeriod, byType FROM ("
+            + " SELECT *, ROW_NUMBER() OVER (PARTITION BY byType ORDER BY total DESC, idCarte) AS rank FROM ("
+            + " SELECT idCarte, type, COUNT(*) AS total,"
+            + " COUNT(*) FILTER (WHERE date BETWEEN ? AND ?) AS inPeriod,"
+            + " GROUPING(idCarte) AS byType"
+            + " FROM OperationCarte GROUP BY GROUPING SETS ((idCarte), (type))"
+            + ") grouped) ranked WHERE byType = 1 OR rank <= ? ORDER BY byType, rank";
+        List<Map.Entry<Integer, Long>> topCards = new ArrayList<>();
+        Map<TypeOperation, Long> periodCounts = new EnumMap<>(TypeOperation.class);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(start));
+            stmt.setTimestamp(2, Timestamp.valueOf(end));
+            stmt.setInt(3, topLimit);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                if (rs.getInt("byType") == 0) {
+                    topCards.add(new AbstractMap.SimpleImmutableEntry<>(rs.getInt("idCarte"), rs.getLong("total")));
+                } else if (rs.getLong("inPeriod") > 0) {
+                    periodCounts.put(TypeOperation.valueOf(rs.getString("type")), rs.getLong("inPeriod"));
+                }
+            }
+        }
+        return new OperationSections(topCards, periodCounts);
+    }
+
+    public Map<Integer, Long> countOperationsPerCard() throws SQLException {
+        String sql = "SELECT idCarte, COUNT(*) AS total FROM OperationCarte GROUP BY idCarte";
+        Map<Integer, Long> counts = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                counts.put(rs.getInt("idCarte"), rs.getLong("total"));
+            }
+        }
+        return counts;
+    }
+
+    public Map<Integer, BigDecimal> sumAmountPerCard() throws SQLException {
+        String sql = "SELECT idCarte, SUM(montant) AS total FROM OperationCarte GROUP BY idCarte";
+        Map<Integer, BigDecimal> totals = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                totals.put(rs.getInt("idCarte"), rs.getBigDecimal("total"));
+            }
+        }
+        return totals;
+    }
+
+    public BigDecimal averageAmount() throws SQLException {
+        String sql = "SELECT COALESCE(ROUND(AVG(montant), 2), 0) AS average FROM OperationCarte";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            rs.next();
+            return rs.getBigDecimal("average");
+        }
+    }
+
+    public BigDecimal sumAmount(LocalDateTime start, LocalDateTime end) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(montant), 0) AS total FROM OperationCarte WHERE date BETWEEN ? AND ?";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(start));
+            stmt.setTimestamp(2, Timestamp.valueOf(end));
+            ResultSet rs = stmt.executeQuery();
+
+            rs.next();
+            return rs.getBigDecimal("total");
+        }
+    }
+
+    public Map<StatutCarte, Long> countCardsByStatus() throws SQLException {
+        String sql = "SELECT statut, COUNT(*) AS total FROM Carte GROUP BY statut";
+        Map<StatutCarte, Long> counts = new EnumMap<>(StatutCarte.class);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                counts.put(StatutCarte.valueOf(rs.getString("statut")), rs.getLong("total"));
+            }
+        }
+        return counts;
+    }
+
+    public int findMaxOperationId() throws SQLException {
+        String sql = "SELECT COALESCE(MAX(id), 0) AS lastId FROM OperationCarte";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            rs.next();
+            return rs.getInt("lastId");
+        }
+    }
+
+    public void forEachHourlyRollup(int upToOperationId, Collection<Integer> excludedIds, Consumer<HourlyRollup> consumer) throws SQLException {
+        String sql = "SELECT date_trunc('hour', o.date) AS hour, o.type, c.typeCarte,"
+            + " COUNT(*) AS total, SUM(o.montant) AS amount, MIN(o.montant) AS smallest, MAX(o.montant) AS largest"
+            + " FROM OperationCarte o JOIN Carte c ON c.id = o.idCarte"
+            + " WHERE o.id <= ? AND o.id <> ALL(?) GROUP BY 1, 2, 3";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, upToOperationId);
+            stmt.setArray(2, conn.createArrayOf("integer", excludedIds.toArray()));
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                consumer.accept(new HourlyRollup(
+                    rs.getTimestamp("hour").toLocalDateTime(),
+                    TypeOperation.valueOf(rs.getString("type")),
+                    TypeCarte.valueOf(rs.getString("typeCarte")),
+                    rs.getLong("total"),
+                    Money.toCents(rs.getBigDecimal("amount")),
+                    Money.toCents(rs.getBigDecimal("smallest")),
+                    Money.toCents(rs.getBigDecimal("largest"))
+                ));
+            }
+        }
+    }
+
+    public void forEachCardActivity(int upToOperationId, Collection<Integer> excludedIds, LocalDateTime since,
+                                    Consumer<CardActivity> consumer) throws SQLException {
+        String sql = since == null
+            ? "SELECT idCarte, COUNT(*) AS total FROM OperationCarte WHERE id <= ? AND id <> ALL(?) GROUP BY idCarte"
+            : "SELECT idCarte, COUNT(*) AS total FROM OperationCarte WHERE id <= ? AND id <> ALL(?) AND date >= ? GROUP BY idCarte";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, upToOperationId);
+            stmt.setArray(2, conn.createArrayOf("integer", excludedIds.toArray()));
+            if (since != null) {
+                stmt.setTimestamp(3, Timestamp.valueOf(since));
+            }
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                consumer.accept(new CardActivity(null, rs.getInt("idCarte"), rs.getLong("total")));
+            }
+        }
+    }
+
+    public void forEachHourlyCardActivity(int upToOperationId, Collection<Integer> excludedIds, LocalDateTime since,
+                                          Consumer<CardActivity> consumer) throws SQLException {
+        String sql = "SELECT date_trunc('hour', date) AS hour, idCarte, COUNT(*) AS total FROM OperationCarte"
+            + " WHERE id <= ? AND id <> ALL(?) AND date >= ? GROUP BY 1, 2";
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, upToOperationId);
+            stmt.setArray(2, conn.createArrayOf("integer", excludedIds.toArray()));
+            stmt.setTimestamp(3, Timestamp.valueOf(since));
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                consumer.accept(new CardActivity(
+                    rs.getTimestamp("hour").toLocalDateTime(), rs.getInt("idCarte"), rs.getLong("total")));
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.bank.dao;
+
+/**
+ * One cached spend total, as saved in a state snapshot.
+ *
+ * @param monthly month counter of a credit card, otherwise day counter of a debit card
+ * @param loadedUpToId highest operation id included in {@code cents}
+ */
+public record SpendCounterState(int cardId, boolean monthly, int periodIndex, long cents, int loadedUpToId) {}
@@ -0,0 +1,93 @@
+package com.bank.dao;
+
+import com.bank.util.Money;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+class SpendCounters {
+    enum Period {
+        DAY,
+        MONTH;
+
+        int indexOf(LocalDate date) {
+            return this == DAY ? (int) date.toEpochDay() : date.getYear() * 12 + date.getMonthValue() - 1;
+        }
+
+        LocalDateTime start(LocalDate date) {
+            return this == DAY ? date.atStartOfDay() : date.withDayOfMonth(1).atStartOfDay();
+        }
+
+        LocalDateTime end(LocalDate date) {
+            return this == DAY ? date.plusDays(1).atStartOfDay() : date.withDayOfMonth(1).plusMonths(1).atStartOfDay();
+        }
+    }
+
+    /**
+     * Total spent by one card over one period. {@code loadedUpToId} is the highest
+     * operation id included so far, from the SQL aggregate the counter was built
+     * from or from a later save, so a save that raced with the load, or one
+     * replayed after a restore, is not counted twice.
+     */
+    private record Counter(int periodIndex, long cents, int loadedUpToId) {}
+
+    private final ConcurrentHashMap<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    OptionalLong current(int cardId, Period period, LocalDate today) {
+        Counter counter = counters.get(key(cardId, period));
+        if (counter == null || counter.periodIndex() != period.indexOf(today)) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(counter.cents());
+    }
+
+    long install(int cardId, Period period, LocalDate today, long cents, int loadedUpToId) {
+        int periodIndex = period.indexOf(today);
+        Counter installed = counters.compute(key(cardId, period), (key, existing) ->
+            existing != null && existing.periodIndex() == periodIndex
+                ? existing
+                : new Counter(periodIndex, cents, loadedUpToId));
+        return installed.cents();
+    }
+
+    void record(int cardId, int operationId, LocalDate date, long cents) {
+        for (Period period : Period.values()) {
+            int periodIndex = period.indexOf(date);
+            counters.computeIfPresent(key(cardId, period), (key, counter) ->
+                counter.periodIndex() == periodIndex && operationId > counter.loadedUpToId()
+                    ? new Counter(periodIndex, Money.add(counter.cents(), cents), operationId)
+                    : counter);
+        }
+    }
+
+    List<SpendCounterState> states() {
+        List<SpendCounterState> states = new ArrayList<>(counters.size());
+        counters.forEach((key, counter) -> states.add(new SpendCounterState((int) (key >>> 1),
+            (key & 1) == Period.MONTH.ordinal(), counter.periodIndex(), counter.cents(), counter.loadedUpToId())));
+        return states;
+    }
+
+    void restore(SpendCounterState state) {
+        Period period = state.monthly() ? Period.MONTH : Period.DAY;
+        counters.putIfAbsent(key(state.cardId(), period),
+            new Counter(state.periodIndex(), state.cents(), state.loadedUpToId()));
+    }
+
+    void invalidate(int cardId) {
+        for (Period period : Period.values()) {
+            counters.remove(key(cardId, period));
+        }
+    }
+
+    void clear() {
+        counters.clear();
+    }
+
+    private static long key(int cardId, Period period) {
+        return ((long) cardId << 1) | period.ordinal();
+    }
+}
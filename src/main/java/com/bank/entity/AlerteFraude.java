@@ -7,5 +7,6 @@ public record AlerteFraude(
     String description,
     NiveauAlerte level,
     int cardId,
-    LocalDateTime creationDate
+    LocalDateTime creationDate,
+    String dedupKey
 ) {}
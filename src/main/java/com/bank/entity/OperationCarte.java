@@ -1,13 +1,23 @@
 package com.bank.entity;
 
+import com.bank.util.Money;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 public record OperationCarte(
     int id,
     LocalDateTime date,
-    BigDecimal amount,
+    long amountCents,
     TypeOperation type,
     String location,
     int cardId
-) {}
+) {
+    public OperationCarte(int id, LocalDateTime date, BigDecimal amount, TypeOperation type, String location, int cardId) {
+        this(id, date, Money.toCents(amount), type, location, cardId);
+    }
+
+    public BigDecimal amount() {
+        return Money.toBigDecimal(amountCents);
+    }
+}
@@ -0,0 +1,50 @@
+package com.bank.generator;
+
+import java.time.LocalDateTime;
+
+/**
+ * Allocation-light formatting for the generated files, which can hold tens of
+ * millions of rows.
+ */
+final class CsvFormat {
+    private CsvFormat() {
+    }
+
+    static String date(LocalDateTime date) {
+        StringBuilder text = new StringBuilder(19);
+        text.append(date.getYear()).append('-');
+        pad(text, date.getMonthValue()).append('-');
+        pad(text, date.getDayOfMonth()).append(' ');
+        pad(text, date.getHour()).append(':');
+        pad(text, date.getMinute()).append(':');
+        pad(text, date.getSecond());
+        return text.toString();
+    }
+
+    static String amount(long cents) {
+        StringBuilder text = new StringBuilder(12);
+        if (cents < 0) {
+            text.append('-');
+            cents = -cents;
+        }
+        text.append(cents / 100).append('.');
+        return pad(text, (int) (cents % 100)).toString();
+    }
+
+    static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static StringBuilder pad(StringBuilder text, int value) {
+        if (value < 10) {
+            text.append('0');
+        }
+        return text.append(value);
+    }
+}
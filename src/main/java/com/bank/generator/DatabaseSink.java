@@ -0,0 +1,101 @@
+package com.bank.generator;
+
+import com.bank.dao.CarteDAO;
+import com.bank.dao.ClientDAO;
+import com.bank.dao.OperationCopyWriter;
+import com.bank.entity.Carte;
+import com.bank.entity.CarteCredit;
+import com.bank.entity.CarteDebit;
+import com.bank.entity.CartePrepayee;
+import com.bank.entity.Client;
+import com.bank.entity.OperationCarte;
+import com.bank.service.RollupStore;
+import com.bank.service.TopCardsTracker;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Loads a generated data set into the database. Clients and cards go through the
+ * DAOs to get their ids; operations are streamed with COPY. Labels are written
+ * to a file with the database card ids.
+ */
+public class DatabaseSink implements GeneratorSink {
+    private final ClientDAO clientDAO;
+    private final CarteDAO carteDAO;
+    private final LabelFile labels;
+    private int[] clientIds = new int[1024];
+    private int[] cardIds = new int[1024];
+    private OperationCopyWriter writer;
+
+    public DatabaseSink(Path labelFile) throws IOException {
+        this.clientDAO = new ClientDAO();
+        this.carteDAO = new CarteDAO();
+        this.labels = new LabelFile(labelFile);
+    }
+
+    @Override
+    public void client(Client client) throws SQLException {
+        Client saved = clientDAO.save(client);
+        clientIds = put(clientIds, client.id(), saved.id());
+    }
+
+    @Override
+    public void card(Carte card) throws SQLException {
+        int clientId = clientIds[card.getClientId()];
+        Carte copy;
+        if (card instanceof CarteDebit cd) {
+            copy = new CarteDebit(0, cd.getNumber(), cd.getExpirationDate(), cd.getStatus(), clientId, cd.getDailyLimit());
+        } else if (card instanceof CarteCredit cc) {
+            copy = new CarteCredit(0, cc.getNumber(), cc.getExpirationDate(), cc.getStatus(), clientId,
+                cc.getMonthlyLimit(), cc.getInterestRate());
+        } else if (card instanceof CartePrepayee cp) {
+            copy = new CartePrepayee(0, cp.getNumber(), cp.getExpirationDate(), cp.getStatus(), clientId,
+                cp.getAvailableBalance());
+        } else {
+            throw new IllegalStateException("Unknown card type");
+        }
+        cardIds = put(cardIds, card.getId(), carteDAO.save(copy).getId());
+    }
+
+    @Override
+    public void operation(OperationCarte operation, FraudPattern label) throws IOException, SQLException {
+        if (writer == null) {
+            writer = new OperationCopyWriter();
+        }
+
+        int cardId = cardIds[operation.cardId()];
+        writer.write(operation.date(), operation.amount(), operation.type(), operation.location(), cardId);
+        if (label != null) {
+            labels.write(cardId, operation.date(), CsvFormat.amount(operation.amountCents()), label);
+        }
+    }
+
+    @Override
+    public void finish() throws SQLException {
+        if (writer != null) {
+            writer.finish();
+        }
+        RollupStore.getInstance().invalidate();
+        TopCardsTracker.getInstance().invalidate();
+    }
+
+    @Override
+    public void close() throws IOException, SQLException {
+        try (labels) {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+
+    private static int[] put(int[] ids, int ordinal, int id) {
+        if (ordinal >= ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(ordinal + 1, ids.length * 2));
+        }
+        ids[ordinal] = id;
+        return ids;
+    }
+}
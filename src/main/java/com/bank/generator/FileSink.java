@@ -0,0 +1,101 @@
+package com.bank.generator;
+
+import com.bank.entity.Carte;
+import com.bank.entity.CarteCredit;
+import com.bank.entity.CarteDebit;
+import com.bank.entity.CartePrepayee;
+import com.bank.entity.Client;
+import com.bank.entity.OperationCarte;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes a generated data set as CSV files in a directory. {@code operations.csv}
+ * uses the layout of the {@code import} command, so the same file can be loaded
+ * into a database whose cards were created from {@code cards.csv}.
+ */
+public class FileSink implements GeneratorSink {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final BufferedWriter clients;
+    private final BufferedWriter cards;
+    private final BufferedWriter operations;
+    private final LabelFile labels;
+
+    public FileSink(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.clients = open(directory.resolve("clients.csv"), "id,name,email,phone");
+        this.cards = open(directory.resolve("cards.csv"),
+            "id,number,expirationDate,status,type,clientId,dailyLimit,monthlyLimit,interestRate,availableBalance");
+        this.operations = open(directory.resolve("operations.csv"), "date,amount,type,location,cardId");
+        this.labels = new LabelFile(directory.resolve("labels.csv"));
+    }
+
+    @Override
+    public void client(Client client) throws IOException {
+        clients.write(client.id() + "," + CsvFormat.quote(client.name()) + "," + CsvFormat.quote(client.email())
+            + "," + CsvFormat.quote(client.phone()) + "\n");
+    }
+
+    @Override
+    public void card(Carte card) throws IOException {
+        BigDecimal dailyLimit = card instanceof CarteDebit cd ? cd.getDailyLimit() : null;
+        BigDecimal monthlyLimit = card instanceof CarteCredit cc ? cc.getMonthlyLimit() : null;
+        BigDecimal interestRate = card instanceof CarteCredit cc ? cc.getInterestRate() : null;
+        BigDecimal balance = card instanceof CartePrepayee cp ? cp.getAvailableBalance() : null;
+
+        cards.write(card.getId() + "," + card.getNumber() + "," + card.getExpirationDate() + "," + card.getStatus()
+            + "," + card.getCardType() + "," + card.getClientId() + "," + plain(dailyLimit) + "," + plain(monthlyLimit)
+            + "," + plain(interestRate) + "," + plain(balance) + "\n");
+    }
+
+    @Override
+    public void operation(OperationCarte operation, FraudPattern label) throws IOException {
+        String date = CsvFormat.date(operation.date());
+        String amount = CsvFormat.amount(operation.amountCents());
+        operations.write(date);
+        operations.write(',');
+        operations.write(amount);
+        operations.write(',');
+        operations.write(operation.type().name());
+        operations.write(',');
+        operations.write(CsvFormat.quote(operation.location()));
+        operations.write(',');
+        operations.write(Integer.toString(operation.cardId()));
+        operations.write('\n');
+
+        if (label != null) {
+            labels.write(operation.cardId(), operation.date(), amount, label);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        clients.flush();
+        cards.flush();
+        operations.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (labels; operations; cards; clients) {
+            // closes every file even if one of them fails
+        }
+    }
+
+    private static BufferedWriter open(Path file, String header) throws IOException {
+        BufferedWriter writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(header);
+        writer.write('\n');
+        return writer;
+    }
+
+    private static String plain(BigDecimal value) {
+        return value == null ? "" : value.toPlainString();
+    }
+}
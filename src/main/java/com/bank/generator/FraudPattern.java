@@ -0,0 +1,27 @@
+package com.bank.generator;
+
+import com.bank.service.rule.HighAmountRule;
+import com.bank.service.rule.MultipleAttemptsRule;
+import com.bank.service.rule.RapidOperationsRule;
+
+/**
+ * Fraud scenarios the generator injects, each shaped to be caught by one rule.
+ */
+public enum FraudPattern {
+    /** A single amount above the high amount threshold. */
+    HIGH_AMOUNT(HighAmountRule.NAME),
+    /** Two operations in distant locations a few minutes apart. */
+    LOCATION_HOP(RapidOperationsRule.NAME),
+    /** Five to eight small online payments within the hour. */
+    BURST(MultipleAttemptsRule.NAME);
+
+    private final String expectedRule;
+
+    FraudPattern(String expectedRule) {
+        this.expectedRule = expectedRule;
+    }
+
+    public String expectedRule() {
+        return expectedRule;
+    }
+}
@@ -0,0 +1,93 @@
+package com.bank.generator;
+
+import com.bank.entity.TypeOperation;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything that shapes a generated data set. Two runs with the same
+ * configuration produce the same clients, cards and operations.
+ *
+ * @param maxCardsPerClient each client gets between one and this many cards
+ * @param amountMedianCents median of the log-normal amount distribution
+ * @param amountSigma spread of the log-normal amount distribution
+ * @param highAmountCents normal amounts stay below it; HIGH_AMOUNT fraud goes above
+ * @param locationSkew Zipf exponent over {@code locations}; 0 is uniform
+ * @param homeLocationShare share of a card's normal operations made at its home location
+ * @param meanInterArrivalMinutes mean time between two normal operations of an average card
+ * @param fraudRate probability that a card starts a fraud pattern after an operation
+ */
+public record GeneratorConfig(
+    long seed,
+    int clients,
+    int maxCardsPerClient,
+    long operations,
+    LocalDateTime start,
+    long amountMedianCents,
+    double amountSigma,
+    long highAmountCents,
+    Map<TypeOperation, Double> typeWeights,
+    List<String> locations,
+    double locationSkew,
+    double homeLocationShare,
+    double meanInterArrivalMinutes,
+    double fraudRate
+) {
+    public static final List<String> DEFAULT_LOCATIONS = List.of(
+        "Casablanca", "Rabat", "Marrakech", "Fes", "Tanger", "Agadir", "Meknes", "Oujda", "Kenitra", "Tetouan",
+        "Paris", "Madrid", "Lyon", "Bruxelles", "Londres", "Dubai", "New York", "Istanbul", "Online", "Montreal"
+    );
+
+    public GeneratorConfig {
+        if (clients < 1 || maxCardsPerClient < 1) {
+            throw new IllegalArgumentException("Clients and cards per client must be positive");
+        }
+        if (operations < 0 || operations > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Operations must be between 0 and " + Integer.MAX_VALUE);
+        }
+        if (amountMedianCents < 1 || amountSigma < 0 || amountMedianCents >= highAmountCents) {
+            throw new IllegalArgumentException("Amount median must be positive and below the high amount threshold");
+        }
+        if (locations.size() < 2) {
+            throw new IllegalArgumentException("At least two locations are required");
+        }
+        if (homeLocationShare < 0 || homeLocationShare > 1 || fraudRate < 0 || fraudRate > 1) {
+            throw new IllegalArgumentException("Shares and rates must be between 0 and 1");
+        }
+        if (meanInterArrivalMinutes <= 0) {
+            throw new IllegalArgumentException("Mean inter-arrival time must be positive");
+        }
+        if (typeWeights.values().stream().mapToDouble(Double::doubleValue).sum() <= 0) {
+            throw new IllegalArgumentException("At least one operation type needs a positive weight");
+        }
+        typeWeights = Map.copyOf(typeWeights);
+        locations = List.copyOf(locations);
+    }
+
+    public static GeneratorConfig defaults(long seed, int clients, long operations) {
+        Map<TypeOperation, Double> typeWeights = new EnumMap<>(TypeOperation.class);
+        typeWeights.put(TypeOperation.PURCHASE, 0.6);
+        typeWeights.put(TypeOperation.WITHDRAWAL, 0.25);
+        typeWeights.put(TypeOperation.ONLINEPAYMENT, 0.15);
+
+        return new GeneratorConfig(
+            seed,
+            clients,
+            3,
+            operations,
+            LocalDateTime.of(2024, 1, 1, 0, 0),
+            4_000,
+            1.0,
+            500_000,
+            typeWeights,
+            DEFAULT_LOCATIONS,
+            1.1,
+            0.85,
+            720,
+            0.001
+        );
+    }
+}
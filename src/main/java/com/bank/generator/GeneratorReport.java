@@ -0,0 +1,21 @@
+package com.bank.generator;
+
+import java.time.Duration;
+import java.util.Map;
+
+public record GeneratorReport(
+    long clients,
+    long cards,
+    long operations,
+    Map<FraudPattern, Long> labeledOperations,
+    Duration elapsed
+) {
+    public long fraudOperations() {
+        return labeledOperations.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public double operationsPerSecond() {
+        double seconds = elapsed.toNanos() / 1e9;
+        return seconds > 0 ? operations / seconds : 0;
+    }
+}
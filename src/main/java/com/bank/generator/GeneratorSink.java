@@ -0,0 +1,33 @@
+package com.bank.generator;
+
+import com.bank.entity.Carte;
+import com.bank.entity.Client;
+import com.bank.entity.OperationCarte;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Receives a generated data set in dependency order: every client before its
+ * cards, every card before its operations. Ids are generator ordinals starting
+ * at 1; a sink that stores rows elsewhere maps them to the ids it gets back.
+ */
+public interface GeneratorSink extends AutoCloseable {
+
+    void client(Client client) throws IOException, SQLException;
+
+    void card(Carte card) throws IOException, SQLException;
+
+    /**
+     * @param label the injected fraud pattern, or {@code null} for a normal operation
+     */
+    void operation(OperationCarte operation, FraudPattern label) throws IOException, SQLException;
+
+    /**
+     * Called once after the last operation, before {@link #close()}.
+     */
+    void finish() throws IOException, SQLException;
+
+    @Override
+    void close() throws IOException, SQLException;
+}
@@ -0,0 +1,31 @@
+package com.bank.generator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+/**
+ * Ground truth of a generated data set: one line per injected fraud operation,
+ * identified by card, date and amount since generated operations have no
+ * database id until they are loaded.
+ */
+class LabelFile implements AutoCloseable {
+    private final BufferedWriter writer;
+
+    LabelFile(Path file) throws IOException {
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        writer.write("cardId,date,amount,pattern,expectedRule\n");
+    }
+
+    void write(int cardId, LocalDateTime date, String amount, FraudPattern pattern) throws IOException {
+        writer.write(cardId + "," + CsvFormat.date(date) + "," + amount + "," + pattern + "," + pattern.expectedRule() + "\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,216 @@
+package com.bank.generator;
+
+import com.bank.entity.Carte;
+import com.bank.entity.CarteCredit;
+import com.bank.entity.CarteDebit;
+import com.bank.entity.CartePrepayee;
+import com.bank.entity.Client;
+import com.bank.entity.OperationCarte;
+import com.bank.entity.StatutCarte;
+import com.bank.entity.TypeOperation;
+import com.bank.util.Money;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Generates a reproducible bank: clients, cards of the three types and a
+ * time-ordered stream of operations with labeled fraud patterns. Every card
+ * draws from its own random stream seeded from the configuration seed and the
+ * card id, and cards are interleaved by timestamp through a priority queue, so
+ * the output only depends on the configuration and nothing is held in memory
+ * but one small state per card.
+ */
+public class TransactionGenerator {
+    private static final int PROGRESS_INTERVAL = 1_000_000;
+    private static final TypeOperation[] TYPES = TypeOperation.values();
+    private static final FraudPattern[] PATTERNS = FraudPattern.values();
+    private static final double ACTIVITY_SIGMA = 0.75;
+
+    private final GeneratorConfig config;
+    private final double[] typeCumulative;
+    private final double[] locationCumulative;
+
+    public TransactionGenerator(GeneratorConfig config) {
+        this.config = config;
+        this.typeCumulative = cumulative(TYPES.length, i -> config.typeWeights().getOrDefault(TYPES[i], 0.0));
+        this.locationCumulative = cumulative(config.locations().size(), i -> 1 / Math.pow(i + 1, config.locationSkew()));
+    }
+
+    public GeneratorReport generate(GeneratorSink sink) throws IOException, SQLException {
+        return generate(sink, progress -> { });
+    }
+
+    public GeneratorReport generate(GeneratorSink sink, Consumer<GeneratorReport> progressListener)
+            throws IOException, SQLException {
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(config.seed());
+        long startSecond = config.start().toEpochSecond(ZoneOffset.UTC);
+        LocalDate expiration = config.start().toLocalDate().plusYears(3);
+
+        PriorityQueue<CardStream> queue = new PriorityQueue<>(
+            Comparator.comparingLong((CardStream card) -> card.nextSecond).thenComparingInt(card -> card.cardId));
+        int cardId = 0;
+        for (int clientId = 1; clientId <= config.clients(); clientId++) {
+            sink.client(client(clientId));
+            int cards = 1 + random.nextInt(config.maxCardsPerClient());
+            for (int i = 0; i < cards; i++) {
+                cardId++;
+                sink.card(card(random, cardId, clientId, expiration));
+                CardStream stream = new CardStream(cardId);
+                stream.nextSecond = startSecond + stream.interArrival();
+                queue.add(stream);
+            }
+        }
+
+        Map<FraudPattern, Long> labeled = new EnumMap<>(FraudPattern.class);
+        long emitted = 0;
+        while (emitted < config.operations()) {
+            CardStream card = queue.poll();
+            Pending next = card.pending.isEmpty() ? card.normal(card.nextSecond) : card.pending.poll();
+
+            emitted++;
+            sink.operation(new OperationCarte(
+                (int) emitted,
+                LocalDateTime.ofEpochSecond(next.epochSecond, 0, ZoneOffset.UTC),
+                next.cents,
+                next.type,
+                config.locations().get(next.location),
+                card.cardId
+            ), next.label);
+            if (next.label != null) {
+                labeled.merge(next.label, 1L, Long::sum);
+            }
+
+            if (card.pending.isEmpty() && card.random.nextDouble() < config.fraudRate()) {
+                card.inject(PATTERNS[card.random.nextInt(PATTERNS.length)], next.epochSecond);
+            }
+            card.nextSecond = card.pending.isEmpty()
+                ? next.epochSecond + card.interArrival()
+                : card.pending.peek().epochSecond;
+            queue.add(card);
+
+            if (emitted % PROGRESS_INTERVAL == 0) {
+                progressListener.accept(new GeneratorReport(config.clients(), cardId, emitted,
+                    Map.copyOf(labeled), Duration.ofNanos(System.nanoTime() - start)));
+            }
+        }
+
+        sink.finish();
+        return new GeneratorReport(config.clients(), cardId, emitted, Map.copyOf(labeled),
+            Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private Client client(int clientId) {
+        return new Client(
+            clientId,
+            "Client " + clientId,
+            "client" + clientId + "." + config.seed() + "@example.test",
+            String.format("06%08d", clientId % 100_000_000)
+        );
+    }
+
+    private static Carte card(SplittableRandom random, int cardId, int clientId, LocalDate expiration) {
+        String number = String.format("9%03d%012d", Math.floorMod(random.nextLong(), 1000L), cardId);
+        return switch (random.nextInt(3)) {
+            case 0 -> new CarteDebit(cardId, number, expiration, StatutCarte.ACTIVE, clientId,
+                Money.toBigDecimal(50_000 + 10_000L * random.nextInt(26)));
+            case 1 -> new CarteCredit(cardId, number, expiration, StatutCarte.ACTIVE, clientId,
+                Money.toBigDecimal(300_000 + 50_000L * random.nextInt(35)),
+                Money.toBigDecimal(1_200 + 25L * random.nextInt(49)));
+            default -> new CartePrepayee(cardId, number, expiration, StatutCarte.ACTIVE, clientId,
+                Money.toBigDecimal(5_000 + 5_000L * random.nextInt(40)));
+        };
+    }
+
+    private static double[] cumulative(int size, IntToDoubleFunction weight) {
+        double[] cumulative = new double[size];
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            total += weight.applyAsDouble(i);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= total;
+        }
+        return cumulative;
+    }
+
+    private static int pick(double[] cumulative, double u) {
+        int index = Arrays.binarySearch(cumulative, u);
+        return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+    }
+
+    private record Pending(long epochSecond, long cents, TypeOperation type, int location, FraudPattern label) {}
+
+    private final class CardStream {
+        private final int cardId;
+        private final SplittableRandom random;
+        private final int home;
+        private final double meanSeconds;
+        private final ArrayDeque<Pending> pending = new ArrayDeque<>(8);
+        private long nextSecond;
+
+        CardStream(int cardId) {
+            this.cardId = cardId;
+            this.random = new SplittableRandom(config.seed() * 0x9E3779B97F4A7C15L + cardId);
+            this.home = pick(locationCumulative, random.nextDouble());
+            double activity = Math.exp(ACTIVITY_SIGMA * random.nextGaussian() - ACTIVITY_SIGMA * ACTIVITY_SIGMA / 2);
+            this.meanSeconds = config.meanInterArrivalMinutes() * 60 / activity;
+        }
+
+        long interArrival() {
+            return Math.max(1, Math.round(-meanSeconds * Math.log(1 - random.nextDouble())));
+        }
+
+        Pending normal(long epochSecond) {
+            long cents = Math.round(config.amountMedianCents() * Math.exp(config.amountSigma() * random.nextGaussian()));
+            int location = random.nextDouble() < config.homeLocationShare()
+                ? home
+                : pick(locationCumulative, random.nextDouble());
+            return new Pending(
+                epochSecond,
+                Math.max(1, Math.min(config.highAmountCents() - 1, cents)),
+                TYPES[pick(typeCumulative, random.nextDouble())],
+                location,
+                null
+            );
+        }
+
+        void inject(FraudPattern pattern, long afterSecond) {
+            long time = afterSecond + interArrival();
+            switch (pattern) {
+                case HIGH_AMOUNT -> {
+                    long cents = config.highAmountCents() + 1 + (long) (random.nextDouble() * 3 * config.highAmountCents());
+                    pending.add(new Pending(time, cents, TYPES[pick(typeCumulative, random.nextDouble())], home, pattern));
+                }
+                case LOCATION_HOP -> {
+                    int away = (home + 1 + random.nextInt(config.locations().size() - 1)) % config.locations().size();
+                    pending.add(new Pending(time, normal(time).cents, TypeOperation.PURCHASE, home, pattern));
+                    time += 120 + random.nextInt(1_380);
+                    pending.add(new Pending(time, normal(time).cents, TypeOperation.PURCHASE, away, pattern));
+                }
+                case BURST -> {
+                    int attempts = 5 + random.nextInt(4);
+                    for (int i = 0; i < attempts; i++) {
+                        pending.add(new Pending(time, 100 + random.nextInt(2_900), TypeOperation.ONLINEPAYMENT, home, pattern));
+                        time += 60 + random.nextInt(540);
+                    }
+                }
+            }
+        }
+    }
+}
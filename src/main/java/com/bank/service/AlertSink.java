@@ -0,0 +1,242 @@
+package com.bank.service;
+
+import com.bank.dao.AlerteDAO;
+import com.bank.entity.AlerteFraude;
+import com.bank.entity.StatutCarte;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class AlertSink implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_LINGER_MILLIS = 50;
+    public static final long DEFAULT_OFFER_TIMEOUT_MILLIS = 100;
+
+    private final AlerteDAO alertDAO;
+    private final BlockingQueue<FraudHit> queue;
+    private final int capacity;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final long offerTimeoutMillis;
+    private final Thread flusher;
+    private final Thread shutdownHook;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private volatile Exception lastFailure;
+
+    private long processed;
+    private volatile boolean running = true;
+
+    public AlertSink(AlerteDAO alertDAO) {
+        this(alertDAO, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_LINGER_MILLIS, DEFAULT_OFFER_TIMEOUT_MILLIS);
+    }
+
+    public AlertSink(AlerteDAO alertDAO, int capacity, int batchSize,
+                     long lingerMillis, long offerTimeoutMillis) {
+        this.alertDAO = alertDAO;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+
+        this.flusher = new Thread(this::run, "alert-sink");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+
+        this.shutdownHook = new Thread(this::close, "alert-sink-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    public void submit(FraudHit hit) throws SQLException {
+        if (!running) {
+            throw new IllegalStateException("Alert sink is closed");
+        }
+        submitted.increment();
+
+        try {
+            if (queue.offer(hit, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        callerRuns.increment();
+        try {
+            write(List.of(hit));
+        } catch (SQLException | RuntimeException e) {
+            recordFailure(1, e);
+            throw e;
+        } finally {
+            markProcessed(1);
+        }
+    }
+
+    /**
+     * Failure marker to pass to {@link #flush(long)}; take it before submitting.
+     */
+    public long mark() {
+        return failedBatches.get();
+    }
+
+    /**
+     * Waits until everything submitted so far is written.
+     *
+     * @throws SQLException if a batch failed since {@code mark} was taken, so the
+     *         caller must not treat its hits as handled
+     */
+    public void flush(long mark) throws SQLException {
+        long target = submitted.sum();
+        synchronized (this) {
+            while (processed < target && flusher.isAlive()) {
+                try {
+                    wait(lingerMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while flushing fraud alerts", e);
+                }
+            }
+        }
+
+        if (failedBatches.get() > mark) {
+            Exception failure = lastFailure;
+            throw new SQLException("Failed to write fraud alerts: " + failure.getMessage(), failure);
+        }
+    }
+
+    public AlertSinkMetrics metrics() {
+        long count = flushes.sum();
+        return new AlertSinkMetrics(
+            queue.size(),
+            capacity,
+            submitted.sum(),
+            created.sum(),
+            duplicates.sum(),
+            dropped.sum(),
+            callerRuns.sum(),
+            count,
+            count == 0 ? 0 : flushNanos.sum() / 1_000_000.0 / count,
+            maxFlushNanos.get() / 1_000_000.0
+        );
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // JVM already shutting down
+            }
+        }
+    }
+
+    private void run() {
+        List<FraudHit> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                FraudHit first = running ? queue.poll(lingerMillis, TimeUnit.MILLISECONDS) : queue.poll();
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                while (batch.size() < batchSize && running) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    FraudHit next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                queue.drainTo(batch, batchSize - batch.size());
+            } catch (InterruptedException e) {
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<FraudHit> batch) {
+        long start = System.nanoTime();
+        try {
+            write(batch);
+        } catch (SQLException | RuntimeException e) {
+            recordFailure(batch.size(), e);
+            System.err.println("Alert sink: failed to write " + batch.size() + " alert(s): " + e.getMessage());
+        }
+
+        long elapsed = System.nanoTime() - start;
+        flushes.increment();
+        flushNanos.add(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+        markProcessed(batch.size());
+    }
+
+    private void write(List<FraudHit> hits) throws SQLException {
+        List<AlerteFraude> alerts = new ArrayList<>(hits.size());
+        Map<String, StatutCarte> cardStatusByKey = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (FraudHit hit : hits) {
+            alerts.add(new AlerteFraude(0, hit.description(), hit.level(), hit.cardId(), now, hit.dedupKey()));
+            switch (hit.action()) {
+                case BLOCK -> cardStatusByKey.put(hit.dedupKey(), StatutCarte.BLOCKED);
+                case SUSPEND -> cardStatusByKey.put(hit.dedupKey(), StatutCarte.SUSPENDED);
+                case NONE -> { }
+            }
+        }
+
+        List<AlerteFraude> inserted = alertDAO.saveAllIfAbsent(alerts, cardStatusByKey);
+        created.add(inserted.size());
+        duplicates.add(hits.size() - inserted.size());
+    }
+
+    private void recordFailure(int count, Exception e) {
+        dropped.add(count);
+        lastFailure = e;
+        failedBatches.incrementAndGet();
+    }
+
+    private synchronized void markProcessed(int count) {
+        processed += count;
+        notifyAll();
+    }
+}
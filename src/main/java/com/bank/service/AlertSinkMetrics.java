@@ -0,0 +1,14 @@
+package com.bank.service;
+
+public record AlertSinkMetrics(
+    int queueDepth,
+    int queueCapacity,
+    long submitted,
+    long created,
+    long duplicates,
+    long dropped,
+    long callerRuns,
+    long flushes,
+    double averageFlushMillis,
+    double maxFlushMillis
+) {}
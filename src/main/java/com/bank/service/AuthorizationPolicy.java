@@ -0,0 +1,26 @@
+package com.bank.service;
+
+import java.time.Duration;
+
+/**
+ * @param budget time allowed for a decision, from the call to the answer
+ * @param persistReserve part of the budget kept for saving the operation; history
+ *                       rules that have not answered when only this is left are deferred
+ * @param fallback decision taken when the history rules are deferred; a hit from
+ *                 the synchronous rules can only make it more severe
+ */
+public record AuthorizationPolicy(
+    Duration budget,
+    Duration persistReserve,
+    Decision fallback
+) {
+    public AuthorizationPolicy {
+        if (budget.isNegative() || budget.isZero() || persistReserve.isNegative() || persistReserve.compareTo(budget) >= 0) {
+            throw new IllegalArgumentException("Budget must be positive and larger than the persist reserve");
+        }
+    }
+
+    public static AuthorizationPolicy defaults() {
+        return new AuthorizationPolicy(Duration.ofMillis(50), Duration.ofMillis(15), Decision.REVIEW);
+    }
+}
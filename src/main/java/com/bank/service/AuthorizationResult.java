@@ -0,0 +1,22 @@
+package com.bank.service;
+
+import com.bank.entity.OperationCarte;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * @param operation the saved operation, or {@code null} when declined
+ * @param rulesDeferred the history rules did not answer in time; they still run
+ *                      on the saved operation in the background
+ * @param stages time spent in each stage, in execution order
+ */
+public record AuthorizationResult(
+    Decision decision,
+    String reason,
+    OperationCarte operation,
+    boolean rulesDeferred,
+    Map<String, Duration> stages,
+    Duration elapsed,
+    boolean overBudget
+) {}
@@ -0,0 +1,212 @@
+package com.bank.service;
+
+import com.bank.entity.Carte;
+import com.bank.entity.NiveauAlerte;
+import com.bank.entity.OperationCarte;
+import com.bank.entity.StatutCarte;
+import com.bank.entity.TypeOperation;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Decides on an operation within a time budget. Card and the rules that only
+ * look at the operation run synchronously from caches and memory; the rules
+ * that need card history run concurrently and are waited for only until the
+ * budget minus the persist reserve. If they are late the policy's fallback
+ * decision applies and the full fraud check still runs on the saved operation
+ * in the background, raising alerts as usual. The limit check and the save run
+ * together on the card's ingestion shard, so two operations on one card cannot
+ * both pass the limit before either is saved.
+ */
+public class AuthorizationService {
+    private static final int SCREENING_QUEUE = 1024;
+
+    private static final ExecutorService screening = new ThreadPoolExecutor(
+        Math.max(2, Runtime.getRuntime().availableProcessors()),
+        Math.max(2, Runtime.getRuntime().availableProcessors()),
+        60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(SCREENING_QUEUE),
+        runnable -> {
+            Thread thread = new Thread(runnable, "authorization-screening");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    private final AuthorizationPolicy policy;
+    private final CarteService cardService;
+    private final OperationService operationService;
+    private final FraudeService fraudService;
+    private final IngestionScheduler ingestionScheduler;
+
+    public AuthorizationService(FraudeService fraudService, AuthorizationPolicy policy) {
+        this.policy = policy;
+        this.cardService = new CarteService();
+        this.operationService = new OperationService(fraudService);
+        this.fraudService = fraudService;
+        this.ingestionScheduler = IngestionScheduler.getInstance();
+    }
+
+    public AuthorizationPolicy getPolicy() {
+        return policy;
+    }
+
+    public AuthorizationResult authorize(int cardId, BigDecimal amount, TypeOperation type, String location) throws SQLException {
+        Stages stages = new Stages(policy.budget());
+
+        Optional<Carte> card = cardService.getCard(cardId);
+        stages.end("card");
+        if (card.isEmpty()) {
+            return stages.result(Decision.DECLINE, "Card not found", null, false);
+        }
+        if (card.get().getStatus() != StatutCarte.ACTIVE) {
+            return stages.result(Decision.DECLINE, "Card is " + card.get().getStatus(), null, false);
+        }
+
+        OperationCarte pending = new OperationCarte(0, LocalDateTime.now(), amount, type, location, cardId);
+        Future<List<FraudHit>> history = submitScreening(pending);
+        List<FraudHit> hits = new ArrayList<>(fraudService.screen(pending));
+        stages.end("rules");
+
+        boolean deferred = history == null;
+        if (!deferred) {
+            try {
+                hits.addAll(history.get(stages.remaining(policy.persistReserve()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                history.cancel(true);
+                deferred = true;
+            } catch (ExecutionException e) {
+                deferred = true;
+            } catch (InterruptedException e) {
+                history.cancel(true);
+                Thread.currentThread().interrupt();
+                deferred = true;
+            }
+        }
+        stages.end("historyRules");
+
+        Decision decision = decide(hits);
+        String reason = hits.isEmpty() ? null : hits.get(0).description();
+        if (deferred) {
+            decision = policy.fallback().orWorse(decision);
+            reason = reason != null ? reason : "Fraud screening deferred, fallback decision";
+        }
+        if (decision == Decision.DECLINE) {
+            return stages.result(decision, reason, null, deferred);
+        }
+
+        Decision screened = decision;
+        String screenedReason = reason;
+        boolean rulesDeferred = deferred;
+        AuthorizationResult result = ingestionScheduler.call(cardId, () -> {
+            if (stages.remaining(policy.persistReserve()) == 0) {
+                return null;
+            }
+            stages.end("shardQueue");
+
+            boolean withinLimit = cardService.verifyLimit(cardId, amount);
+            stages.end("limit");
+            if (!withinLimit) {
+                return stages.result(Decision.DECLINE, "Limit exceeded", null, rulesDeferred);
+            }
+
+            OperationCarte saved;
+            try {
+                saved = operationService.persist(cardId, amount, type, location, pending.date());
+            } catch (IllegalArgumentException e) {
+                stages.end("persist");
+                return stages.result(Decision.DECLINE, e.getMessage(), null, rulesDeferred);
+            }
+            stages.end("persist");
+
+            scheduleFraudCheck(saved);
+            return stages.result(screened, screenedReason, saved, rulesDeferred);
+        }, stages.remaining(policy.persistReserve()), null);
+
+        if (result == null) {
+            stages.end("shardQueue");
+            return stages.result(Decision.DECLINE, "Authorization budget spent waiting for the card's turn", null, rulesDeferred);
+        }
+        return result;
+    }
+
+    /**
+     * Queues the full fraud check behind the card's pending work, so the
+     * in-memory fraud state sees the card's operations in the order they were
+     * saved. A full mailbox runs it inline rather than losing it.
+     */
+    private void scheduleFraudCheck(OperationCarte saved) throws SQLException {
+        try {
+            ingestionScheduler.submit(saved.cardId(), () -> {
+                try {
+                    fraudService.checkOperation(saved);
+                } catch (SQLException | RuntimeException e) {
+                    System.err.println("Authorization: fraud check of operation " + saved.id() + " failed: " + e.getMessage());
+                }
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            fraudService.checkOperation(saved);
+        }
+    }
+
+    private Future<List<FraudHit>> submitScreening(OperationCarte pending) {
+        try {
+            return screening.submit(() -> fraudService.screenWithHistory(pending));
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    private static Decision decide(List<FraudHit> hits) {
+        Decision decision = Decision.APPROVE;
+        for (FraudHit hit : hits) {
+            boolean severe = hit.action() == FraudAction.BLOCK || hit.level() == NiveauAlerte.CRITICAL;
+            decision = decision.orWorse(severe ? Decision.DECLINE : Decision.REVIEW);
+        }
+        return decision;
+    }
+
+    private static class Stages {
+        private final long start = System.nanoTime();
+        private final long budgetNanos;
+        private final Map<String, Duration> durations = new LinkedHashMap<>();
+        private long mark = start;
+
+        Stages(Duration budget) {
+            this.budgetNanos = budget.toNanos();
+        }
+
+        void end(String stage) {
+            long now = System.nanoTime();
+            durations.put(stage, Duration.ofNanos(now - mark));
+            mark = now;
+        }
+
+        long remaining(Duration reserve) {
+            return Math.max(0, start + budgetNanos - reserve.toNanos() - System.nanoTime());
+        }
+
+        AuthorizationResult result(Decision decision, String reason, OperationCarte operation, boolean deferred) {
+            long elapsed = System.nanoTime() - start;
+            return new AuthorizationResult(decision, reason, operation, deferred, Collections.unmodifiableMap(durations),
+                Duration.ofNanos(elapsed), elapsed > budgetNanos);
+        }
+    }
+}
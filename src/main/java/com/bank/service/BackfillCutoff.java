@@ -0,0 +1,89 @@
+package com.bank.service;
+
+import com.bank.dao.OperationDAO;
+import com.bank.dao.RapportDAO;
+import com.bank.entity.OperationCarte;
+
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tells a store backfilled from history which live saves its backfill already
+ * covers, by membership rather than by an id cutoff: with the journal open, ids
+ * are reserved in blocks and saves reach the table out of order, so an id at or
+ * below the table's highest one says nothing about whether it was scanned.
+ *
+ * <p>The store publishes its loading state first. Saves recorded while it loads
+ * are counted live and remembered; the scan excludes them along with the
+ * operations still pending in the journal, which are folded in directly.
+ */
+final class BackfillCutoff {
+
+    static final BackfillCutoff NONE = new BackfillCutoff(false);
+
+    private final boolean active;
+    private final Set<Integer> recorded = ConcurrentHashMap.newKeySet();
+    private volatile boolean loading = true;
+    private int upToId = -1;
+    private List<OperationCarte> journaled = List.of();
+    private Set<Integer> journaledIds = Set.of();
+
+    private BackfillCutoff(boolean active) {
+        this.active = active;
+    }
+
+    static BackfillCutoff start() {
+        return new BackfillCutoff(true);
+    }
+
+    /**
+     * The journal is read before the table's highest id, so an operation drained
+     * in between is either still listed as journaled or at or below that id.
+     */
+    void take(RapportDAO rapportDAO, OperationDAO operationDAO) throws SQLException {
+        journaled = operationDAO.findJournaledAfterId(0);
+        Set<Integer> ids = new HashSet<>(journaled.size() * 2);
+        for (OperationCarte operation : journaled) {
+            ids.add(operation.id());
+        }
+        journaledIds = ids;
+        upToId = rapportDAO.findMaxOperationId();
+    }
+
+    int upToId() {
+        return upToId;
+    }
+
+    /** Ids a scan must leave out; taken right before each scan. */
+    Set<Integer> excludedIds() {
+        Set<Integer> excluded = new HashSet<>(journaledIds);
+        excluded.addAll(recorded);
+        return excluded;
+    }
+
+    /** Journaled operations not already counted live. */
+    List<OperationCarte> journaledToAdd() {
+        return journaled.stream().filter(operation -> !recorded.contains(operation.id())).toList();
+    }
+
+    void finish() {
+        loading = false;
+        recorded.clear();
+        journaled = List.of();
+        journaledIds = Set.of();
+    }
+
+    /** Whether a live save should be counted by the store owning this cutoff. */
+    boolean admits(OperationCarte operation) {
+        if (!active) {
+            return false;
+        }
+        if (loading) {
+            recorded.add(operation.id());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,36 @@
+package com.bank.service;
+
+import com.bank.entity.OperationCarte;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+class CardWindow {
+    private final int capacity;
+    private final Deque<OperationCarte> recent;
+
+    CardWindow(int capacity, List<OperationCarte> mostRecentFirst) {
+        this.capacity = capacity;
+        this.recent = new ArrayDeque<>(capacity);
+        for (OperationCarte op : mostRecentFirst) {
+            if (recent.size() == capacity) {
+                break;
+            }
+            recent.addLast(op);
+        }
+    }
+
+    synchronized List<OperationCarte> push(OperationCarte operation) {
+        List<OperationCarte> window = new ArrayList<>(recent.size() + 1);
+        window.add(operation);
+        window.addAll(recent);
+
+        recent.addFirst(operation);
+        if (recent.size() > capacity) {
+            recent.removeLast();
+        }
+        return window;
+    }
+}
@@ -1,7 +1,10 @@
 package com.bank.service;
 
 import com.bank.dao.CarteDAO;
+import com.bank.dao.OperationDAO;
 import com.bank.entity.*;
+import com.bank.util.CacheStats;
+import com.bank.util.Money;
 
 import java.math.BigDecimal;
 import java.sql.SQLException;
@@ -12,10 +15,12 @@ import java.util.Random;
 
 public class CarteService {
     private final CarteDAO carteDAO;
+    private final OperationDAO operationDAO;
     private final Random random;
 
     public CarteService() {
         this.carteDAO = new CarteDAO();
+        this.operationDAO = new OperationDAO();
         this.random = new Random();
     }
 
@@ -52,40 +57,36 @@ public class CarteService {
     }
 
     public boolean activateCard(int cardId) throws SQLException {
-        Optional<Carte> cardOpt = carteDAO.findById(cardId);
-        if (cardOpt.isEmpty()) {
-            throw new IllegalArgumentException("Card not found");
+        if (carteDAO.updateStatus(cardId, StatutCarte.ACTIVE)) {
+            return true;
         }
 
-        Carte card = cardOpt.get();
-        if (card.getStatus() == StatutCarte.ACTIVE) {
-            throw new IllegalStateException("Card is already active");
-        }
-
-        card.setStatus(StatutCarte.ACTIVE);
-        return carteDAO.update(card);
+        requireCard(cardId);
+        throw new IllegalStateException("Card is already active");
     }
 
     public boolean suspendCard(int cardId) throws SQLException {
-        Optional<Carte> cardOpt = carteDAO.findById(cardId);
-        if (cardOpt.isEmpty()) {
-            throw new IllegalArgumentException("Card not found");
+        if (carteDAO.updateStatus(cardId, StatutCarte.SUSPENDED)) {
+            return true;
         }
 
-        Carte card = cardOpt.get();
-        card.setStatus(StatutCarte.SUSPENDED);
-        return carteDAO.update(card);
+        requireCard(cardId);
+        return false;
     }
 
     public boolean blockCard(int cardId) throws SQLException {
-        Optional<Carte> cardOpt = carteDAO.findById(cardId);
-        if (cardOpt.isEmpty()) {
-            throw new IllegalArgumentException("Card not found");
+        if (carteDAO.updateStatus(cardId, StatutCarte.BLOCKED)) {
+            return true;
         }
 
-        Carte card = cardOpt.get();
-        card.setStatus(StatutCarte.BLOCKED);
-        return carteDAO.update(card);
+        requireCard(cardId);
+        return false;
+    }
+
+    private void requireCard(int cardId) throws SQLException {
+        if (carteDAO.findById(cardId).isEmpty()) {
+            throw new IllegalArgumentException("Card not found");
+        }
     }
 
     public boolean verifyLimit(int cardId, BigDecimal amount) throws SQLException {
@@ -100,17 +101,36 @@ public class CarteService {
             return false;
         }
 
+        long amountCents = Money.toCents(amount);
         if (card instanceof CarteDebit cd) {
-            return amount.compareTo(cd.getDailyLimit()) <= 0;
+            long spentToday = operationDAO.getDailySpendCents(cardId);
+            return Money.add(spentToday, amountCents) <= Money.toCents(cd.getDailyLimit());
         } else if (card instanceof CarteCredit cc) {
-            return amount.compareTo(cc.getMonthlyLimit()) <= 0;
+            long spentThisMonth = operationDAO.getMonthlySpendCents(cardId);
+            return Money.add(spentThisMonth, amountCents) <= Money.toCents(cc.getMonthlyLimit());
         } else if (card instanceof CartePrepayee cp) {
-            return amount.compareTo(cp.getAvailableBalance()) <= 0;
+            return amountCents <= Money.toCents(cp.getAvailableBalance());
         }
 
         return false;
     }
 
+    public boolean debitIfPrepaid(int cardId, BigDecimal amount) throws SQLException {
+        Optional<Carte> card = carteDAO.findById(cardId);
+        if (card.isEmpty() || !(card.get() instanceof CartePrepayee)) {
+            return false;
+        }
+
+        if (!carteDAO.debitBalance(cardId, amount)) {
+            throw new IllegalArgumentException("Operation refused: insufficient balance");
+        }
+        return true;
+    }
+
+    public void refundPrepaid(int cardId, BigDecimal amount) throws SQLException {
+        carteDAO.creditBalance(cardId, amount);
+    }
+
     public Optional<Carte> getCard(int id) throws SQLException {
         return carteDAO.findById(id);
     }
@@ -130,4 +150,8 @@ public class CarteService {
     public boolean deleteCard(int id) throws SQLException {
         return carteDAO.delete(id);
     }
+
+    public CacheStats getCacheStats() {
+        return CarteDAO.getCacheStats();
+    }
 }
@@ -0,0 +1,16 @@
+package com.bank.service;
+
+import java.time.Duration;
+
+/**
+ * @param catchUpFromId operations above this id are replayed when the snapshot is restored
+ * @param replayedOperations operations added to restored state by the catch-up, 0 for a checkpoint
+ */
+public record CheckpointReport(
+    int cards,
+    int spendCounters,
+    long bytes,
+    int catchUpFromId,
+    long replayedOperations,
+    Duration elapsed
+) {}
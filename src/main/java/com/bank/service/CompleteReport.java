@@ -0,0 +1,15 @@
+package com.bank.service;
+
+import com.bank.entity.StatutCarte;
+import com.bank.entity.TypeOperation;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+public record CompleteReport(
+    List<Map.Entry<Integer, Long>> topCards,
+    Map<StatutCarte, Long> cardsByStatus,
+    YearMonth month,
+    Map<TypeOperation, Long> monthlyOperationCount
+) {}
@@ -0,0 +1,14 @@
+package com.bank.service;
+
+/**
+ * Outcome of an authorization, from least to most severe.
+ */
+public enum Decision {
+    APPROVE,
+    REVIEW,
+    DECLINE;
+
+    public Decision orWorse(Decision other) {
+        return other.ordinal() > ordinal() ? other : this;
+    }
+}
@@ -0,0 +1,7 @@
+package com.bank.service;
+
+public enum FraudAction {
+    NONE,
+    SUSPEND,
+    BLOCK
+}
@@ -0,0 +1,11 @@
+package com.bank.service;
+
+import com.bank.entity.NiveauAlerte;
+
+public record FraudHit(
+    int cardId,
+    String description,
+    NiveauAlerte level,
+    FraudAction action,
+    String dedupKey
+) {}
@@ -0,0 +1,149 @@
+package com.bank.service;
+
+import com.bank.dao.DataAccessException;
+import com.bank.dao.OperationDAO;
+import com.bank.dao.RapportDAO;
+import com.bank.dao.SpendCounterState;
+import com.bank.entity.OperationCarte;
+import com.bank.service.rule.VelocityStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Saves the fraud velocity rings and the spend counters to a snapshot file at a
+ * fixed interval, and restores them at startup so a restarted node detects with
+ * warm state instead of reloading every card from SQL on first use.
+ * <p>
+ * Restoring replays the operations saved after the snapshot, from OperationCarte
+ * and from the journal if one is open. A card's operations are applied in id
+ * order, so the newest id in its restored state tells exactly which replayed
+ * operations it lacks. The replay starts from the highest id seen at the
+ * checkpoint before, which also covers an operation whose check was still
+ * queued while the snapshot was taken.
+ */
+public class FraudStateCheckpointer implements AutoCloseable {
+    private final FraudeService fraudService;
+    private final Path file;
+    private final OperationDAO operationDAO;
+    private final RapportDAO rapportDAO;
+    private final ScheduledExecutorService scheduler;
+    private int previousMaxId;
+
+    public FraudStateCheckpointer(FraudeService fraudService, Path file) {
+        this.fraudService = fraudService;
+        this.file = file;
+        this.operationDAO = new OperationDAO();
+        this.rapportDAO = new RapportDAO();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fraud-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads the snapshot, if any, and replays what was saved since. Call before
+     * operations start flowing.
+     *
+     * @return empty when there is no snapshot or it cannot be used; state then warms up from SQL as before
+     */
+    public synchronized Optional<CheckpointReport> restore() throws SQLException {
+        long start = System.nanoTime();
+        int maxId = rapportDAO.findMaxOperationId();
+        previousMaxId = maxId;
+
+        Optional<StateSnapshotFile.Contents> snapshot;
+        try {
+            snapshot = StateSnapshotFile.read(file);
+        } catch (IOException e) {
+            System.err.println("Checkpoint: ignoring snapshot: " + e.getMessage());
+            return Optional.empty();
+        }
+        if (snapshot.isEmpty()) {
+            return Optional.empty();
+        }
+
+        StateSnapshotFile.Contents contents = snapshot.get();
+        fraudService.restoreVelocity(contents.velocity());
+        OperationDAO.restoreSpendCounters(contents.spend());
+        long replayed = catchUp(contents.catchUpFromId());
+        return Optional.of(new CheckpointReport(contents.velocity().cardCount(), contents.spend().size(), 0,
+            contents.catchUpFromId(), replayed, Duration.ofNanos(System.nanoTime() - start)));
+    }
+
+    public synchronized CheckpointReport checkpoint() throws IOException, SQLException {
+        long start = System.nanoTime();
+        int maxId = rapportDAO.findMaxOperationId();
+        VelocityStore velocity = fraudService.velocitySnapshot();
+        List<SpendCounterState> spend = OperationDAO.spendCounterStates();
+
+        long bytes = StateSnapshotFile.write(file, previousMaxId, velocity, spend);
+        CheckpointReport report = new CheckpointReport(velocity.cardCount(), spend.size(), bytes, previousMaxId, 0,
+            Duration.ofNanos(System.nanoTime() - start));
+        previousMaxId = maxId;
+        return report;
+    }
+
+    public void start(Duration interval) {
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (IOException | SQLException | RuntimeException e) {
+                System.err.println("Checkpoint: snapshot failed: " + e.getMessage());
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the schedule and writes a last snapshot.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+            checkpoint();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | SQLException | RuntimeException e) {
+            System.err.println("Checkpoint: final snapshot failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Journaled operations are listed before the table is scanned, so one drained
+     * meanwhile is seen at least once; seeing it twice is harmless.
+     */
+    private long catchUp(int afterId) throws SQLException {
+        List<OperationCarte> journaled = operationDAO.findJournaledAfterId(afterId);
+        long replayed = 0;
+        try (Stream<OperationCarte> operations = operationDAO.streamAfterId(afterId)) {
+            Iterator<OperationCarte> iterator = operations.iterator();
+            while (iterator.hasNext()) {
+                replayed += replay(iterator.next());
+            }
+        } catch (DataAccessException e) {
+            throw e.getCause();
+        }
+        for (OperationCarte operation : journaled) {
+            replayed += replay(operation);
+        }
+        return replayed;
+    }
+
+    private int replay(OperationCarte operation) {
+        OperationDAO.replaySpend(operation);
+        return fraudService.replay(operation) ? 1 : 0;
+    }
+}
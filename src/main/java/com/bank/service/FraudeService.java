@@ -1,102 +1,391 @@
 package com.bank.service;
 
 import com.bank.dao.AlerteDAO;
+import com.bank.dao.CarteDAO;
+import com.bank.dao.DataAccessException;
 import com.bank.dao.OperationDAO;
 import com.bank.entity.AlerteFraude;
 import com.bank.entity.NiveauAlerte;
 import com.bank.entity.OperationCarte;
+import com.bank.service.rule.RulePipeline;
+import com.bank.service.rule.RuleStatistics;
+import com.bank.service.rule.VelocityStore;
 
-import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class FraudeService {
     private final OperationDAO operationDAO;
     private final AlerteDAO alertDAO;
-    private final CarteService cardService;
+    private final CarteDAO carteDAO;
+    private final RulePipeline rules;
 
-    private static final BigDecimal SUSPICIOUS_AMOUNT = new BigDecimal("5000");
-    private static final long SUSPICIOUS_MINUTES_BETWEEN_OPERATIONS = 30;
+    private static final int PENDING_ID = Integer.MAX_VALUE;
+    private static final Comparator<OperationCarte> MOST_RECENT_FIRST =
+        Comparator.comparing(OperationCarte::date).reversed();
+
+    private final Map<Integer, CardWindow> windows = new ConcurrentHashMap<>();
+    private final VelocityStore velocityStore;
+    private final AlertSink alertSink;
 
     public FraudeService() {
+        this(RulePipeline.defaultRules());
+    }
+
+    public FraudeService(RulePipeline rules) {
         this.operationDAO = new OperationDAO();
         this.alertDAO = new AlerteDAO();
-        this.cardService = new CarteService();
+        this.carteDAO = new CarteDAO();
+        this.rules = rules;
+        this.velocityStore = new VelocityStore(rules.lookback() + 1);
+        this.alertSink = new AlertSink(alertDAO);
     }
 
     public void detectFraud(int cardId) throws SQLException {
-        List<OperationCarte> operations = operationDAO.findByCardId(cardId);
+        int watermark = carteDAO.findDetectionWatermark(cardId);
+        List<OperationCarte> newOperations = operationDAO.findByCardIdAfter(cardId, watermark);
 
-        if (operations.isEmpty()) {
+        if (newOperations.isEmpty()) {
             return;
         }
 
-        detectHighAmounts(operations);
-        detectRapidOperations(operations);
-        detectMultipleAttempts(operations);
+        List<OperationCarte> operations = new ArrayList<>(newOperations);
+        operations.addAll(operationDAO.findRecentByCardIdUpTo(cardId, watermark, rules.lookback()));
+        operations.sort(MOST_RECENT_FIRST);
+
+        long mark = alertSink.mark();
+        apply(rules.evaluate(operations, watermark));
+        alertSink.flush(mark);
+        carteDAO.advanceDetectionWatermark(cardId, maxId(newOperations));
     }
 
-    private void detectHighAmounts(List<OperationCarte> operations) throws SQLException {
-        for (OperationCarte op : operations) {
-            if (op.amount().compareTo(SUSPICIOUS_AMOUNT) > 0) {
-                String description = String.format(
-                    "High amount detected: %.2f EUR at %s on %s",
-                    op.amount(),
-                    op.location(),
-                    op.date()
-                );
-                createAlert(op.cardId(), description, NiveauAlerte.WARNING);
+    public void checkOperation(OperationCarte operation) throws SQLException {
+        if (!rules.velocityOnly()) {
+            checkOperationWindow(operation);
+            return;
+        }
+
+        boolean known;
+        synchronized (velocityStore) {
+            known = velocityStore.contains(operation.cardId());
+        }
+        List<OperationCarte> previous = known ? List.of() : findPrevious(operation);
+
+        List<FraudHit> hits;
+        synchronized (velocityStore) {
+            if (!velocityStore.contains(operation.cardId())) {
+                for (int i = previous.size() - 1; i >= 0; i--) {
+                    recordVelocity(previous.get(i));
+                }
             }
+            int slot = recordVelocity(operation);
+            hits = rules.evaluateLatest(velocityStore, slot, operation);
         }
+
+        apply(hits);
     }
 
-    private void detectRapidOperations(List<OperationCarte> operations) throws SQLException {
-        for (int i = 0; i < operations.size() - 1; i++) {
-            OperationCarte op1 = operations.get(i);
-            OperationCarte op2 = operations.get(i + 1);
+    private void checkOperationWindow(OperationCarte operation) throws SQLException {
+        CardWindow window = windows.get(operation.cardId());
+        if (window == null) {
+            CardWindow created = new CardWindow(rules.lookback(), findPrevious(operation));
+            CardWindow existing = windows.putIfAbsent(operation.cardId(), created);
+            window = existing != null ? existing : created;
+        }
 
-            Duration duration = Duration.between(op2.date(), op1.date());
-            long minutesDiff = Math.abs(duration.toMinutes());
+        apply(rules.evaluate(window.push(operation), operation.id() - 1));
+    }
 
-            if (minutesDiff <= SUSPICIOUS_MINUTES_BETWEEN_OPERATIONS && !op1.location().equals(op2.location())) {
-                String description = String.format(
-                    "Suspicious operations: %s at %s and %s at %s in %d minutes",
-                    op1.location(),
-                    op1.date(),
-                    op2.location(),
-                    op2.date(),
-                    minutesDiff
-                );
-                createAlert(op1.cardId(), description, NiveauAlerte.CRITICAL);
+    /**
+     * Copy of the per-card velocity rings, for a state snapshot.
+     */
+    VelocityStore velocitySnapshot() {
+        synchronized (velocityStore) {
+            return velocityStore.copy();
+        }
+    }
 
-                cardService.blockCard(op1.cardId());
+    /**
+     * Loads rings from a snapshot. Cards already tracked keep their live ring.
+     */
+    void restoreVelocity(VelocityStore restored) {
+        synchronized (velocityStore) {
+            for (int slot = 0; slot < restored.cardCount(); slot++) {
+                int cardId = restored.cardId(slot);
+                if (velocityStore.contains(cardId)) {
+                    continue;
+                }
+                for (int back = restored.size(slot) - 1; back >= 0; back--) {
+                    velocityStore.record(cardId, restored.operationId(slot, back), restored.epochSecond(slot, back),
+                        restored.amountCents(slot, back),
+                        velocityStore.internLocation(restored.locationName(restored.location(slot, back))));
+                }
             }
         }
     }
 
-    private void detectMultipleAttempts(List<OperationCarte> operations) throws SQLException {
-        if (operations.size() < 5) {
-            return;
+    /**
+     * Adds an operation saved after a snapshot to its card's restored ring,
+     * without evaluating rules. A card's operations are checked in id order, so
+     * an id at or below the ring's newest is already in it. Cards without a ring
+     * are left to load their history on first use.
+     */
+    boolean replay(OperationCarte operation) {
+        synchronized (velocityStore) {
+            int slot = velocityStore.slotOf(operation.cardId());
+            if (slot < 0 || (velocityStore.size(slot) > 0 && operation.id() <= velocityStore.operationId(slot, 0))) {
+                return false;
+            }
+            recordVelocity(operation);
+            return true;
         }
+    }
 
-        for (int i = 0; i < operations.size() - 4; i++) {
-            OperationCarte first = operations.get(i);
-            OperationCarte fifth = operations.get(i + 4);
+    /**
+     * Rules that need nothing but the operation, for an operation that is not
+     * saved yet. Runs in memory.
+     */
+    public List<FraudHit> screen(OperationCarte pending) {
+        return rules.screen(List.of(asPending(pending)), PENDING_ID - 1, false);
+    }
 
-            Duration duration = Duration.between(fifth.date(), first.date());
-            long minutesDiff = Math.abs(duration.toMinutes());
+    /**
+     * Rules that need the card's recent operations, for an operation that is not
+     * saved yet. Costs one query.
+     */
+    public List<FraudHit> screenWithHistory(OperationCarte pending) throws SQLException {
+        if (rules.lookback() == 0) {
+            return List.of();
+        }
+
+        List<OperationCarte> operations = new ArrayList<>(operationDAO.findRecentByCardId(pending.cardId(), rules.lookback()));
+        operations.add(asPending(pending));
+        operations.sort(MOST_RECENT_FIRST);
+        return rules.screen(operations, PENDING_ID - 1, true);
+    }
+
+    private static OperationCarte asPending(OperationCarte operation) {
+        return new OperationCarte(PENDING_ID, operation.date(), operation.amountCents(), operation.type(),
+            operation.location(), operation.cardId());
+    }
+
+    private List<OperationCarte> findPrevious(OperationCarte operation) throws SQLException {
+        return operationDAO.findRecentByCardId(operation.cardId(), rules.lookback() + 1)
+            .stream()
+            .filter(op -> op.id() < operation.id())
+            .limit(rules.lookback())
+            .collect(Collectors.toList());
+    }
+
+    private int recordVelocity(OperationCarte operation) {
+        return velocityStore.record(
+            operation.cardId(),
+            operation.id(),
+            operation.date().toEpochSecond(ZoneOffset.UTC),
+            operation.amountCents(),
+            velocityStore.internLocation(operation.location())
+        );
+    }
+
+    public SweepReport sweepAll() throws SQLException {
+        return sweepAll(progress -> { });
+    }
+
+    public SweepReport sweepAll(Consumer<SweepReport> progressListener) throws SQLException {
+        Map<Integer, Integer> watermarks = carteDAO.findAllDetectionWatermarks();
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        CardSweep sweep = new CardSweep(pool, pool.getParallelism() * 2, watermarks, progressListener);
+
+        try (Stream<OperationCarte> operations = operationDAO.streamOrderedByCard()) {
+            operations.forEach(sweep::accept);
+            sweep.finish();
+        } catch (DataAccessException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+
+        long createdBefore = alertSink.metrics().created();
+        long mark = alertSink.mark();
+        apply(sweep.hits);
+        alertSink.flush(mark);
+        carteDAO.advanceDetectionWatermarks(sweep.newWatermarks);
+        return sweep.report(alertSink.metrics().created() - createdBefore);
+    }
+
+    private void apply(List<FraudHit> hits) throws SQLException {
+        for (FraudHit hit : hits) {
+            alertSink.submit(hit);
+        }
+    }
+
+    private static int maxId(List<OperationCarte> operations) {
+        int max = 0;
+        for (OperationCarte op : operations) {
+            max = Math.max(max, op.id());
+        }
+        return max;
+    }
 
-            if (minutesDiff <= 60) {
-                String description = String.format(
-                    "Multiple attempts detected: 5+ operations in %d minutes",
-                    minutesDiff
-                );
-                createAlert(first.cardId(), description, NiveauAlerte.CRITICAL);
-                cardService.suspendCard(first.cardId());
+    private record CardHistory(List<OperationCarte> operations, int watermark) {}
+
+    private class CardSweep {
+        private static final int PARTITION_OPERATIONS = 20_000;
+        private static final int PROGRESS_EVERY_CARDS = 10_000;
+
+        private final ForkJoinPool pool;
+        private final int maxInFlight;
+        private final Map<Integer, Integer> watermarks;
+        private final Consumer<SweepReport> progressListener;
+        private final long startNanos = System.nanoTime();
+        private final Deque<PartitionTask> inFlight = new ArrayDeque<>();
+        private final List<FraudHit> hits = new ArrayList<>();
+        private final Map<Integer, Integer> newWatermarks = new HashMap<>();
+
+        private List<CardHistory> partition = new ArrayList<>();
+        private List<OperationCarte> current = new ArrayList<>();
+        private int currentMaxId;
+        private int partitionOperations;
+        private long cards;
+        private long operations;
+        private long lastReportedCards;
+
+        CardSweep(ForkJoinPool pool, int maxInFlight, Map<Integer, Integer> watermarks, Consumer<SweepReport> progressListener) {
+            this.pool = pool;
+            this.maxInFlight = maxInFlight;
+            this.watermarks = watermarks;
+            this.progressListener = progressListener;
+        }
+
+        void accept(OperationCarte operation) {
+            if (!current.isEmpty() && current.get(0).cardId() != operation.cardId()) {
+                closeCard();
+            }
+            current.add(operation);
+            currentMaxId = Math.max(currentMaxId, operation.id());
+            operations++;
+        }
+
+        void finish() {
+            if (!current.isEmpty()) {
+                closeCard();
+            }
+            submitPartition();
+            while (!inFlight.isEmpty()) {
+                joinOldest();
+            }
+            progressListener.accept(report(hits.size()));
+        }
+
+        SweepReport report(long alerts) {
+            return new SweepReport(cards, operations, alerts, Duration.ofNanos(System.nanoTime() - startNanos));
+        }
+
+        private void closeCard() {
+            int cardId = current.get(0).cardId();
+            int watermark = watermarks.getOrDefault(cardId, 0);
+            cards++;
+
+            if (currentMaxId > watermark) {
+                Collections.reverse(current);
+                partition.add(new CardHistory(current, watermark));
+                partitionOperations += current.size();
+                newWatermarks.put(cardId, currentMaxId);
+            }
+            current = new ArrayList<>();
+            currentMaxId = 0;
+
+            if (partitionOperations >= PARTITION_OPERATIONS) {
+                submitPartition();
+            }
+        }
+
+        private void submitPartition() {
+            if (partition.isEmpty()) {
+                return;
             }
+            PartitionTask task = new PartitionTask(partition, 0, partition.size());
+            pool.execute(task);
+            inFlight.addLast(task);
+            partition = new ArrayList<>();
+            partitionOperations = 0;
+
+            while (inFlight.size() > maxInFlight) {
+                joinOldest();
+            }
+        }
+
+        private void joinOldest() {
+            hits.addAll(inFlight.removeFirst().join());
+
+            if (cards - lastReportedCards >= PROGRESS_EVERY_CARDS) {
+                lastReportedCards = cards;
+                progressListener.accept(report(hits.size()));
+            }
+        }
+    }
+
+    private class PartitionTask extends RecursiveTask<List<FraudHit>> {
+        private static final long serialVersionUID = 1L;
+        private static final int CARDS_PER_TASK = 64;
+
+        private final List<CardHistory> cards;
+        private final int start;
+        private final int end;
+
+        PartitionTask(List<CardHistory> cards, int start, int end) {
+            this.cards = cards;
+            this.start = start;
+            this.end = end;
         }
+
+        @Override
+        protected List<FraudHit> compute() {
+            if (end - start <= CARDS_PER_TASK) {
+                List<FraudHit> hits = new ArrayList<>();
+                for (int i = start; i < end; i++) {
+                    CardHistory history = cards.get(i);
+                    hits.addAll(rules.evaluate(history.operations(), history.watermark()));
+                }
+                return hits;
+            }
+
+            int middle = (start + end) >>> 1;
+            PartitionTask left = new PartitionTask(cards, start, middle);
+            PartitionTask right = new PartitionTask(cards, middle, end);
+            left.fork();
+            List<FraudHit> hits = new ArrayList<>(right.compute());
+            hits.addAll(left.join());
+            return hits;
+        }
+    }
+
+    public AlertSinkMetrics getAlertSinkMetrics() {
+        return alertSink.metrics();
+    }
+
+    public void shutdown() {
+        alertSink.close();
+    }
+
+    public List<RuleStatistics> getRuleStatistics() {
+        return rules.statistics();
     }
 
     public AlerteFraude createAlert(int cardId, String description, NiveauAlerte level) throws SQLException {
@@ -105,7 +394,8 @@ public class FraudeService {
             description,
             level,
             cardId,
-            LocalDateTime.now()
+            LocalDateTime.now(),
+            null
         );
         return alertDAO.save(alert);
     }
@@ -0,0 +1,18 @@
+package com.bank.service;
+
+import java.time.Duration;
+import java.util.List;
+
+public record ImportReport(
+    long lines,
+    long imported,
+    long rejected,
+    List<String> rejections,
+    Duration elapsed,
+    SweepReport sweep
+) {
+    public double rowsPerSecond() {
+        long millis = Math.max(1, elapsed.toMillis());
+        return lines * 1000.0 / millis;
+    }
+}
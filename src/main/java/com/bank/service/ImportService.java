@@ -0,0 +1,166 @@
+package com.bank.service;
+
+import com.bank.dao.CarteDAO;
+import com.bank.dao.OperationCopyWriter;
+import com.bank.entity.TypeOperation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Bulk loads historical operations from a CSV or TSV file with columns
+ * {@code date, amount, type, location, cardId}. A header line is optional.
+ */
+public class ImportService {
+    private static final int PROGRESS_INTERVAL = 100_000;
+    private static final int MAX_REPORTED_REJECTIONS = 20;
+    private static final int MAX_LOCATION_LENGTH = 100;
+    private static final BigDecimal MAX_AMOUNT = new BigDecimal("100000000");
+
+    private final CarteDAO carteDAO;
+    private final FraudeService fraudService;
+
+    public ImportService() {
+        this(new FraudeService());
+    }
+
+    public ImportService(FraudeService fraudService) {
+        this.carteDAO = new CarteDAO();
+        this.fraudService = fraudService;
+    }
+
+    public ImportReport importOperations(Path file, boolean runSweep) throws IOException, SQLException {
+        return importOperations(file, runSweep, progress -> { });
+    }
+
+    public ImportReport importOperations(Path file, boolean runSweep, Consumer<ImportReport> progressListener)
+            throws IOException, SQLException {
+        BitSet cardIds = carteDAO.findAllIds();
+        List<String> rejections = new ArrayList<>();
+        long start = System.nanoTime();
+        long lines = 0;
+        long rejected = 0;
+        long imported;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             OperationCopyWriter writer = new OperationCopyWriter()) {
+            String line = reader.readLine();
+            char delimiter = line != null && line.indexOf('\t') >= 0 ? '\t' : ',';
+            if (line != null && isHeader(split(line, delimiter))) {
+                line = reader.readLine();
+            }
+
+            for (; line != null; line = reader.readLine()) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                lines++;
+
+                String error = writeRow(writer, split(line, delimiter), cardIds);
+                if (error != null) {
+                    rejected++;
+                    if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                        rejections.add("line " + lines + ": " + error);
+                    }
+                }
+
+                if (lines % PROGRESS_INTERVAL == 0) {
+                    progressListener.accept(new ImportReport(lines, lines - rejected, rejected,
+                        List.copyOf(rejections), Duration.ofNanos(System.nanoTime() - start), null));
+                }
+            }
+
+            imported = writer.finish();
+        }
+
+        RollupStore.getInstance().invalidate();
+        TopCardsTracker.getInstance().invalidate();
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        SweepReport sweep = runSweep ? fraudService.sweepAll() : null;
+        return new ImportReport(lines, imported, rejected, List.copyOf(rejections), elapsed, sweep);
+    }
+
+    private String writeRow(OperationCopyWriter writer, List<String> fields, BitSet cardIds) throws SQLException {
+        if (fields.size() != 5) {
+            return "expected 5 fields, found " + fields.size();
+        }
+
+        try {
+            LocalDateTime date = LocalDateTime.parse(fields.get(0).trim().replace(' ', 'T'));
+            BigDecimal amount = new BigDecimal(fields.get(1).trim());
+            TypeOperation type = TypeOperation.valueOf(fields.get(2).trim().toUpperCase());
+            String location = fields.get(3);
+            int cardId = Integer.parseInt(fields.get(4).trim());
+
+            if (amount.signum() <= 0 || amount.scale() > 2 || amount.compareTo(MAX_AMOUNT) >= 0) {
+                return "invalid amount " + amount;
+            }
+            if (location.length() > MAX_LOCATION_LENGTH) {
+                return "location longer than " + MAX_LOCATION_LENGTH + " characters";
+            }
+            if (cardId <= 0 || !cardIds.get(cardId)) {
+                return "unknown card " + cardId;
+            }
+
+            writer.write(date, amount, type, location.isEmpty() ? null : location, cardId);
+            return null;
+        } catch (DateTimeParseException e) {
+            return "invalid date " + fields.get(0);
+        } catch (NumberFormatException e) {
+            return "invalid number in " + fields;
+        } catch (IllegalArgumentException e) {
+            return "unknown operation type " + fields.get(2);
+        }
+    }
+
+    private static boolean isHeader(List<String> fields) {
+        try {
+            Integer.parseInt(fields.get(fields.size() - 1).trim());
+            return false;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static List<String> split(String line, char delimiter) {
+        List<String> fields = new ArrayList<>(5);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,243 @@
+package com.bank.service;
+
+import com.bank.util.LatencyHistogram;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs per-card work on a fixed set of single-threaded shards. A card always
+ * hashes to the same shard, so its operations are checked, saved and fed to the
+ * in-memory fraud state one at a time and in arrival order, while cards on
+ * different shards proceed in parallel. Mailboxes are bounded; a full mailbox
+ * rejects new work instead of queueing without limit.
+ */
+public class IngestionScheduler implements AutoCloseable {
+    public static final int DEFAULT_MAILBOX_CAPACITY = 10_000;
+
+    private static volatile IngestionScheduler instance;
+
+    private final Shard[] shards;
+
+    @FunctionalInterface
+    public interface CardTask<T> {
+        T run() throws SQLException;
+    }
+
+    public IngestionScheduler(int shardCount, int mailboxCapacity) {
+        if (shardCount < 1 || mailboxCapacity < 1) {
+            throw new IllegalArgumentException("Shard count and mailbox capacity must be positive");
+        }
+
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, mailboxCapacity);
+            shards[i].thread.start();
+        }
+    }
+
+    public static IngestionScheduler getInstance() {
+        if (instance == null) {
+            synchronized (IngestionScheduler.class) {
+                if (instance == null) {
+                    instance = new IngestionScheduler(Runtime.getRuntime().availableProcessors(), DEFAULT_MAILBOX_CAPACITY);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public int shardOf(int cardId) {
+        int hash = cardId * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    /**
+     * Queues {@code task} behind everything already waiting for the card's shard,
+     * including when called from that shard's own thread.
+     *
+     * @throws RejectedExecutionException if the shard's mailbox is full or the scheduler is closed
+     */
+    public <T> CompletableFuture<T> submit(int cardId, CardTask<T> task) {
+        return shards[shardOf(cardId)].enqueue(task);
+    }
+
+    /**
+     * Runs {@code task} on the card's shard and waits for it, rethrowing what it
+     * threw. Called from the shard's own thread the task runs inline, so code that
+     * already holds the card's turn can call back in without deadlocking.
+     */
+    public <T> T call(int cardId, CardTask<T> task) throws SQLException {
+        Shard shard = shards[shardOf(cardId)];
+        if (Thread.currentThread() == shard.thread) {
+            return task.run();
+        }
+
+        CompletableFuture<T> result = shard.enqueue(task);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for card " + cardId, e);
+        } catch (ExecutionException e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Like {@link #call(int, CardTask)}, but gives up if the task has not started
+     * within {@code startTimeoutNanos}: the task is then skipped when its turn
+     * comes and {@code timedOut} is returned. A task that has started is waited
+     * for, so it is never left half done behind the caller's back.
+     */
+    public <T> T call(int cardId, CardTask<T> task, long startTimeoutNanos, T timedOut) throws SQLException {
+        Shard shard = shards[shardOf(cardId)];
+        if (Thread.currentThread() == shard.thread) {
+            return task.run();
+        }
+
+        AtomicBoolean claimed = new AtomicBoolean();
+        CompletableFuture<T> result = shard.enqueue(() -> claimed.compareAndSet(false, true) ? task.run() : timedOut);
+        try {
+            try {
+                return result.get(startTimeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (claimed.compareAndSet(false, true)) {
+                    return timedOut;
+                }
+                return result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for card " + cardId, e);
+        } catch (ExecutionException e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static SQLException rethrow(ExecutionException e) {
+        if (e.getCause() instanceof SQLException sqlException) {
+            return sqlException;
+        }
+        if (e.getCause() instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        throw new IllegalStateException(e.getCause());
+    }
+
+    public List<ShardMetrics> metrics() {
+        List<ShardMetrics> metrics = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            metrics.add(shard.metrics());
+        }
+        return metrics;
+    }
+
+    /**
+     * Stops accepting work, lets every shard drain its mailbox and waits for them.
+     */
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.closed = true;
+            shard.thread.interrupt();
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private record Task<T>(CardTask<T> work, CompletableFuture<T> result, long enqueuedNanos) {}
+
+    private static class Shard {
+        private final int index;
+        private final BlockingQueue<Task<?>> mailbox;
+        private final Thread thread;
+        private final AtomicInteger maxDepth = new AtomicInteger();
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LatencyHistogram lag = new LatencyHistogram();
+        private final LatencyHistogram service = new LatencyHistogram();
+        private volatile boolean closed;
+
+        Shard(int index, int capacity) {
+            this.index = index;
+            this.mailbox = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this::loop, "ingestion-shard-" + index);
+            thread.setDaemon(true);
+        }
+
+        <T> CompletableFuture<T> enqueue(CardTask<T> work) {
+            if (closed) {
+                throw new RejectedExecutionException("Ingestion scheduler is closed");
+            }
+            CompletableFuture<T> result = new CompletableFuture<>();
+            if (!mailbox.offer(new Task<>(work, result, System.nanoTime()))) {
+                rejected.increment();
+                throw new RejectedExecutionException("Ingestion shard " + index + " is full");
+            }
+            maxDepth.accumulateAndGet(mailbox.size(), Math::max);
+            return result;
+        }
+
+        private void loop() {
+            while (true) {
+                Task<?> task;
+                try {
+                    task = mailbox.take();
+                } catch (InterruptedException e) {
+                    if (closed) {
+                        drain();
+                        return;
+                    }
+                    continue;
+                }
+                run(task);
+            }
+        }
+
+        private void drain() {
+            for (Task<?> task = mailbox.poll(); task != null; task = mailbox.poll()) {
+                run(task);
+            }
+        }
+
+        private <T> void run(Task<T> task) {
+            long start = System.nanoTime();
+            lag.record(start - task.enqueuedNanos());
+            try {
+                task.result().complete(task.work().run());
+            } catch (Throwable e) {
+                task.result().completeExceptionally(e);
+            } finally {
+                service.record(System.nanoTime() - start);
+                processed.increment();
+            }
+        }
+
+        ShardMetrics metrics() {
+            Task<?> oldest = mailbox.peek();
+            double oldestWaitMillis = oldest == null
+                ? 0
+                : TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - oldest.enqueuedNanos()) / 1000.0;
+            return new ShardMetrics(index, mailbox.size(), maxDepth.get(), processed.sum(), rejected.sum(),
+                oldestWaitMillis, lag.snapshot(), service.snapshot());
+        }
+    }
+}
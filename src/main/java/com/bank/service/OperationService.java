@@ -13,33 +13,54 @@ import java.util.Optional;
 public class OperationService {
     private final OperationDAO operationDAO;
     private final CarteService cardService;
+    private final FraudeService fraudService;
+    private final RollupStore rollupStore;
+    private final TopCardsTracker topCardsTracker;
+    private final IngestionScheduler ingestionScheduler;
 
     public OperationService() {
+        this(new FraudeService());
+    }
+
+    public OperationService(FraudeService fraudService) {
         this.operationDAO = new OperationDAO();
         this.cardService = new CarteService();
+        this.fraudService = fraudService;
+        this.rollupStore = RollupStore.getInstance();
+        this.topCardsTracker = TopCardsTracker.getInstance();
+        this.ingestionScheduler = IngestionScheduler.getInstance();
     }
 
     public OperationCarte recordOperation(int cardId, BigDecimal amount, TypeOperation type, String location) throws SQLException {
-        if (!cardService.verifyLimit(cardId, amount)) {
-            throw new IllegalArgumentException("Operation refused: limit exceeded or card inactive");
-        }
+        return record(cardId, amount, type, location, LocalDateTime.now());
+    }
 
-        OperationCarte operation = new OperationCarte(
-            0,
-            LocalDateTime.now(),
-            amount,
-            type,
-            location,
-            cardId
-        );
+    public OperationCarte recordOperationWithDate(int cardId, BigDecimal amount, TypeOperation type, String location, LocalDateTime date) throws SQLException {
+        return record(cardId, amount, type, location, date);
+    }
 
-        return operationDAO.save(operation);
+    /**
+     * Runs on the card's ingestion shard, so the limit check, the save and the
+     * fraud check of one card never interleave with another operation on it.
+     */
+    private OperationCarte record(int cardId, BigDecimal amount, TypeOperation type, String location, LocalDateTime date) throws SQLException {
+        return ingestionScheduler.call(cardId, () -> {
+            if (!cardService.verifyLimit(cardId, amount)) {
+                throw new IllegalArgumentException("Operation refused: limit exceeded or card inactive");
+            }
+
+            OperationCarte saved = persist(cardId, amount, type, location, date);
+            fraudService.checkOperation(saved);
+            return saved;
+        });
     }
 
-    public OperationCarte recordOperationWithDate(int cardId, BigDecimal amount, TypeOperation type, String location, LocalDateTime date) throws SQLException {
-        if (!cardService.verifyLimit(cardId, amount)) {
-            throw new IllegalArgumentException("Operation refused: limit exceeded or card inactive");
-        }
+    /**
+     * Debits prepaid cards, saves the operation and updates the in-memory
+     * statistics, without the limit check or the fraud check.
+     */
+    OperationCarte persist(int cardId, BigDecimal amount, TypeOperation type, String location, LocalDateTime date) throws SQLException {
+        boolean debited = cardService.debitIfPrepaid(cardId, amount);
 
         OperationCarte operation = new OperationCarte(
             0,
@@ -50,7 +71,23 @@ public class OperationService {
             cardId
         );
 
-        return operationDAO.save(operation);
+        OperationCarte saved;
+        try {
+            saved = operationDAO.save(operation);
+        } catch (SQLException | RuntimeException e) {
+            if (debited) {
+                try {
+                    cardService.refundPrepaid(cardId, amount);
+                } catch (SQLException refundError) {
+                    e.addSuppressed(refundError);
+                }
+            }
+            throw e;
+        }
+
+        cardService.getCard(cardId).ifPresent(card -> rollupStore.record(saved, card.getCardType()));
+        topCardsTracker.record(saved);
+        return saved;
     }
 
     public Optional<OperationCarte> getOperation(int id) throws SQLException {
@@ -78,6 +115,11 @@ public class OperationService {
     }
 
     public boolean deleteOperation(int id) throws SQLException {
-        return operationDAO.delete(id);
+        boolean deleted = operationDAO.delete(id);
+        if (deleted) {
+            rollupStore.invalidate();
+            topCardsTracker.invalidate();
+        }
+        return deleted;
     }
 }
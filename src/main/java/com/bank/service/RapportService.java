@@ -1,162 +1,122 @@
 package com.bank.service;
 
 import com.bank.dao.CarteDAO;
-import com.bank.dao.OperationDAO;
+import com.bank.dao.RapportDAO;
 import com.bank.entity.Carte;
-import com.bank.entity.OperationCarte;
 import com.bank.entity.StatutCarte;
 import com.bank.entity.TypeOperation;
+import com.bank.util.SpaceSaving;
 
 import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class RapportService {
     private final CarteDAO carteDAO;
-    private final OperationDAO operationDAO;
+    private final RapportDAO rapportDAO;
+    private final ReportEngine reportEngine;
+    private final RollupStore rollupStore;
+    private final TopCardsTracker topCardsTracker;
 
     public RapportService() {
         this.carteDAO = new CarteDAO();
-        this.operationDAO = new OperationDAO();
+        this.rapportDAO = new RapportDAO();
+        this.reportEngine = new ReportEngine();
+        this.rollupStore = RollupStore.getInstance();
+        this.topCardsTracker = TopCardsTracker.getInstance();
     }
 
+    /**
+     * Counts come from the top-cards sketch: exact while fewer cards than its
+     * capacity have been used, upper bounds beyond that. Use
+     * {@link #getMostUsedCardEstimates} for the error of each count.
+     */
     public List<Map.Entry<Integer, Long>> getTop5MostUsedCards() throws SQLException {
-        List<OperationCarte> operations = operationDAO.findAll();
-
-        Map<Integer, Long> operationsPerCard = operations.stream()
-            .collect(Collectors.groupingBy(
-                OperationCarte::cardId,
-                Collectors.counting()
-            ));
-
-        return operationsPerCard.entrySet().stream()
-            .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
-            .limit(5)
-            .collect(Collectors.toList());
+        return getMostUsedCards(TopCardsTracker.Window.ALL_TIME, 5);
+    }
+
+    public List<Map.Entry<Integer, Long>> getMostUsedCards(TopCardsTracker.Window window, int limit) throws SQLException {
+        return topCardsTracker.top(window, limit);
+    }
+
+    public List<SpaceSaving.Entry> getMostUsedCardEstimates(TopCardsTracker.Window window, int limit) throws SQLException {
+        return topCardsTracker.topEstimates(window, limit);
     }
 
     public Map<TypeOperation, BigDecimal> getMonthlyStatistics(YearMonth month) throws SQLException {
-        LocalDateTime start = month.atDay(1).atStartOfDay();
-        LocalDateTime end = month.atEndOfMonth().atTime(23, 59, 59);
-
-        List<OperationCarte> operations = operationDAO.findByDateRange(start, end);
-
-        return operations.stream()
-            .collect(Collectors.groupingBy(
-                OperationCarte::type,
-                Collectors.reducing(
-                    BigDecimal.ZERO,
-                    OperationCarte::amount,
-                    BigDecimal::add
-                )
-            ));
+        Map<TypeOperation, BigDecimal> totals = new EnumMap<>(TypeOperation.class);
+        getPeriodStatistics(month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay())
+            .forEach((type, stats) -> totals.put(type, stats.sum()));
+        return totals;
     }
 
     public Map<TypeOperation, Long> getMonthlyOperationCount(YearMonth month) throws SQLException {
-        LocalDateTime start = month.atDay(1).atStartOfDay();
-        LocalDateTime end = month.atEndOfMonth().atTime(23, 59, 59);
-
-        List<OperationCarte> operations = operationDAO.findByDateRange(start, end);
+        Map<TypeOperation, Long> counts = new EnumMap<>(TypeOperation.class);
+        getPeriodStatistics(month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay())
+            .forEach((type, stats) -> counts.put(type, stats.count()));
+        return counts;
+    }
 
-        return operations.stream()
-            .collect(Collectors.groupingBy(
-                OperationCarte::type,
-                Collectors.counting()
-            ));
+    /**
+     * Count, sum, min and max per operation type over {@code [start, end)}; both
+     * bounds must fall on a full hour.
+     */
+    public Map<TypeOperation, RollupStats> getPeriodStatistics(LocalDateTime start, LocalDateTime end) throws SQLException {
+        return rollupStore.byType(start, end);
     }
 
     public List<Carte> getBlockedCards() throws SQLException {
-        List<Carte> cards = carteDAO.findAll();
-
-        return cards.stream()
-            .filter(card -> card.getStatus() == StatutCarte.BLOCKED)
-            .collect(Collectors.toList());
+        return carteDAO.findByStatus(EnumSet.of(StatutCarte.BLOCKED));
     }
 
     public List<Carte> getSuspendedCards() throws SQLException {
-        List<Carte> cards = carteDAO.findAll();
-
-        return cards.stream()
-            .filter(card -> card.getStatus() == StatutCarte.SUSPENDED)
-            .collect(Collectors.toList());
+        return carteDAO.findByStatus(EnumSet.of(StatutCarte.SUSPENDED));
     }
 
     public List<Carte> getSuspiciousCards() throws SQLException {
-        List<Carte> cards = carteDAO.findAll();
-
-        return cards.stream()
-            .filter(card -> card.getStatus() == StatutCarte.BLOCKED ||
-                           card.getStatus() == StatutCarte.SUSPENDED)
-            .collect(Collectors.toList());
+        return carteDAO.findByStatus(EnumSet.of(StatutCarte.BLOCKED, StatutCarte.SUSPENDED));
     }
 
     public BigDecimal getTotalAmountForPeriod(LocalDateTime start, LocalDateTime end) throws SQLException {
-        List<OperationCarte> operations = operationDAO.findByDateRange(start, end);
-
-        return operations.stream()
-            .map(OperationCarte::amount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        boolean endsBeforeFullHour = end.getMinute() == 59 && end.getSecond() == 59 && end.getNano() == 0;
+        if (RollupStore.isAligned(start) && endsBeforeFullHour) {
+            return rollupStore.total(start, end.plusSeconds(1)).sum();
+        }
+        return rapportDAO.sumAmount(start, end);
     }
 
     public BigDecimal getAverageOperationAmount() throws SQLException {
-        List<OperationCarte> operations = operationDAO.findAll();
-
-        if (operations.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-
-        BigDecimal total = operations.stream()
-            .map(OperationCarte::amount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        return total.divide(new BigDecimal(operations.size()), 2, BigDecimal.ROUND_HALF_UP);
+        return rapportDAO.averageAmount();
     }
 
     public Map<Integer, Long> getOperationCountPerCard() throws SQLException {
-        List<OperationCarte> operations = operationDAO.findAll();
-
-        return operations.stream()
-            .collect(Collectors.groupingBy(
-                OperationCarte::cardId,
-                Collectors.counting()
-            ));
+        return rapportDAO.countOperationsPerCard();
     }
 
     public Map<Integer, BigDecimal> getTotalAmountPerCard() throws SQLException {
-        List<OperationCarte> operations = operationDAO.findAll();
-
-        return operations.stream()
-            .collect(Collectors.groupingBy(
-                OperationCarte::cardId,
-                Collectors.reducing(
-                    BigDecimal.ZERO,
-                    OperationCarte::amount,
-                    BigDecimal::add
-                )
-            ));
+        return rapportDAO.sumAmountPerCard();
     }
 
     public String generateCompleteReport() throws SQLException {
+        CompleteReport result = reportEngine.run(YearMonth.now(), 5);
         StringBuilder report = new StringBuilder();
         report.append("=== BANK REPORT ===\n\n");
 
         report.append("Top 5 Most Used Cards:\n");
-        List<Map.Entry<Integer, Long>> top5 = getTop5MostUsedCards();
+        List<Map.Entry<Integer, Long>> top5 = result.topCards();
         for (int i = 0; i < top5.size(); i++) {
             report.append(String.format("%d. Card ID %d: %d operations\n",
                 i + 1, top5.get(i).getKey(), top5.get(i).getValue()));
         }
 
-        report.append("\nBlocked Cards: ").append(getBlockedCards().size()).append("\n");
-        report.append("Suspended Cards: ").append(getSuspendedCards().size()).append("\n");
+        Map<StatutCarte, Long> statusCounts = result.cardsByStatus();
+        report.append("\nBlocked Cards: ").append(statusCounts.getOrDefault(StatutCarte.BLOCKED, 0L)).append("\n");
+        report.append("Suspended Cards: ").append(statusCounts.getOrDefault(StatutCarte.SUSPENDED, 0L)).append("\n");
 
-        YearMonth currentMonth = YearMonth.now();
         report.append("\nCurrent Month Statistics:\n");
-        Map<TypeOperation, Long> stats = getMonthlyOperationCount(currentMonth);
-        stats.forEach((type, count) ->
+        result.monthlyOperationCount().forEach((type, count) ->
             report.append(String.format("  %s: %d operations\n", type, count))
         );
 
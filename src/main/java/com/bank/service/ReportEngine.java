@@ -0,0 +1,61 @@
+package com.bank.service;
+
+import com.bank.dao.OperationSections;
+import com.bank.dao.RapportDAO;
+import com.bank.entity.StatutCarte;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds the complete report with one scan per table. All operation sections are
+ * answered by a single aggregate over OperationCarte and the status section by a
+ * single aggregate over Carte; the two scans are independent and run concurrently.
+ */
+public class ReportEngine {
+    private static final ExecutorService scans = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "report-scan");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final RapportDAO rapportDAO;
+
+    public ReportEngine() {
+        this.rapportDAO = new RapportDAO();
+    }
+
+    public CompleteReport run(YearMonth month, int topLimit) throws SQLException {
+        LocalDateTime start = month.atDay(1).atStartOfDay();
+        LocalDateTime end = month.atEndOfMonth().atTime(23, 59, 59);
+
+        Future<OperationSections> operations = scans.submit(() -> rapportDAO.scanOperationSections(start, end, topLimit));
+        Future<Map<StatutCarte, Long>> cards = scans.submit(rapportDAO::countCardsByStatus);
+
+        OperationSections sections = await(operations);
+        return new CompleteReport(sections.topCards(), await(cards), month, sections.periodCountByType());
+    }
+
+    private static <T> T await(Future<T> scan) throws SQLException {
+        try {
+            return scan.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while building the report", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.bank.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public record RollupStats(
+    long count,
+    BigDecimal sum,
+    BigDecimal min,
+    BigDecimal max
+) {
+    public static final RollupStats EMPTY = new RollupStats(0, BigDecimal.ZERO.setScale(2), null, null);
+
+    public BigDecimal average() {
+        return count == 0 ? BigDecimal.ZERO : sum.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+    }
+}
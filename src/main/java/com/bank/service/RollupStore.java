@@ -0,0 +1,270 @@
+package com.bank.service;
+
+import com.bank.dao.CarteDAO;
+import com.bank.dao.HourlyRollup;
+import com.bank.dao.OperationDAO;
+import com.bank.dao.RapportDAO;
+import com.bank.entity.Carte;
+import com.bank.entity.OperationCarte;
+import com.bank.entity.TypeCarte;
+import com.bank.entity.TypeOperation;
+import com.bank.util.Money;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pre-aggregated operation statistics in hour, day and month buckets, split by
+ * operation type and card type. A period query merges the largest buckets that
+ * fit in the range, so a year costs a few dozen lookups instead of a table scan.
+ * The store is backfilled from history on first use and then kept current by
+ * {@link #record(OperationCarte, TypeCarte)}.
+ */
+public class RollupStore {
+    private static final TypeOperation[] TYPES = TypeOperation.values();
+    private static final TypeCarte[] CARD_TYPES = TypeCarte.values();
+
+    private static volatile RollupStore instance;
+
+    private final RapportDAO rapportDAO;
+    private final OperationDAO operationDAO;
+    private final CarteDAO carteDAO;
+    private volatile State state = new State(BackfillCutoff.NONE);
+
+    private RollupStore() {
+        this.rapportDAO = new RapportDAO();
+        this.operationDAO = new OperationDAO();
+        this.carteDAO = new CarteDAO();
+    }
+
+    public static RollupStore getInstance() {
+        if (instance == null) {
+            synchronized (RollupStore.class) {
+                if (instance == null) {
+                    instance = new RollupStore();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public static boolean isAligned(LocalDateTime time) {
+        return time.getMinute() == 0 && time.getSecond() == 0 && time.getNano() == 0;
+    }
+
+    public void record(OperationCarte operation, TypeCarte cardType) {
+        State current = state;
+        if (!current.cutoff.admits(operation)) {
+            return;
+        }
+        current.add(operation, cardType);
+    }
+
+    /**
+     * Drops every bucket; the next query backfills again. Used after writes that
+     * bypass {@link #record(OperationCarte, TypeCarte)}, such as bulk imports or deletes.
+     */
+    public void invalidate() {
+        state = new State(BackfillCutoff.NONE);
+    }
+
+    public RollupStats total(LocalDateTime start, LocalDateTime end) throws SQLException {
+        Accumulator[][] cells = collect(start, end);
+        Accumulator total = new Accumulator();
+        for (Accumulator[] row : cells) {
+            for (Accumulator cell : row) {
+                total.merge(cell);
+            }
+        }
+        return total.toStats();
+    }
+
+    public Map<TypeOperation, RollupStats> byType(LocalDateTime start, LocalDateTime end) throws SQLException {
+        Accumulator[][] cells = collect(start, end);
+        Map<TypeOperation, RollupStats> result = new EnumMap<>(TypeOperation.class);
+        for (TypeOperation type : TYPES) {
+            Accumulator total = new Accumulator();
+            for (Accumulator cell : cells[type.ordinal()]) {
+                total.merge(cell);
+            }
+            if (total.count > 0) {
+                result.put(type, total.toStats());
+            }
+        }
+        return result;
+    }
+
+    public Map<TypeCarte, RollupStats> byCardType(LocalDateTime start, LocalDateTime end) throws SQLException {
+        Accumulator[][] cells = collect(start, end);
+        Map<TypeCarte, RollupStats> result = new EnumMap<>(TypeCarte.class);
+        for (TypeCarte cardType : CARD_TYPES) {
+            Accumulator total = new Accumulator();
+            for (Accumulator[] row : cells) {
+                total.merge(row[cardType.ordinal()]);
+            }
+            if (total.count > 0) {
+                result.put(cardType, total.toStats());
+            }
+        }
+        return result;
+    }
+
+    private Accumulator[][] collect(LocalDateTime start, LocalDateTime end) throws SQLException {
+        if (!isAligned(start) || !isAligned(end)) {
+            throw new IllegalArgumentException("Rollup periods must start and end on a full hour");
+        }
+
+        State current = loadedState();
+        Accumulator[][] cells = new Accumulator[TYPES.length][CARD_TYPES.length];
+        for (Accumulator[] row : cells) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = new Accumulator();
+            }
+        }
+
+        LocalDateTime time = start;
+        while (time.isBefore(end)) {
+            if (time.getDayOfMonth() == 1 && time.getHour() == 0 && !time.plusMonths(1).isAfter(end)) {
+                current.mergeInto(cells, current.months, monthIndex(time));
+                time = time.plusMonths(1);
+            } else if (time.getHour() == 0 && !time.plusDays(1).isAfter(end)) {
+                current.mergeInto(cells, current.days, dayIndex(time));
+                time = time.plusDays(1);
+            } else {
+                current.mergeInto(cells, current.hours, hourIndex(time));
+                time = time.plusHours(1);
+            }
+        }
+        return cells;
+    }
+
+    private State loadedState() throws SQLException {
+        State current = state;
+        if (current.ready) {
+            return current;
+        }
+
+        synchronized (this) {
+            current = state;
+            if (current.ready) {
+                return current;
+            }
+
+            BackfillCutoff cutoff = BackfillCutoff.start();
+            State loading = new State(cutoff);
+            state = loading;
+            try {
+                cutoff.take(rapportDAO, operationDAO);
+                rapportDAO.forEachHourlyRollup(cutoff.upToId(), cutoff.excludedIds(), rollup ->
+                    loading.add(rollup.hour(), rollup.type(), rollup.cardType(), rollup.count(),
+                        rollup.sumCents(), rollup.minCents(), rollup.maxCents()));
+                for (OperationCarte operation : cutoff.journaledToAdd()) {
+                    Optional<Carte> card = carteDAO.findById(operation.cardId());
+                    if (card.isPresent()) {
+                        loading.add(operation, card.get().getCardType());
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                state = new State(BackfillCutoff.NONE);
+                throw e;
+            }
+            cutoff.finish();
+            loading.ready = true;
+            return loading;
+        }
+    }
+
+    private static long hourIndex(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 3600;
+    }
+
+    private static long dayIndex(LocalDateTime time) {
+        return time.toLocalDate().toEpochDay();
+    }
+
+    private static long monthIndex(LocalDateTime time) {
+        return time.getYear() * 12L + time.getMonthValue() - 1;
+    }
+
+    private static long key(long periodIndex, int type, int cardType) {
+        return (periodIndex << 4) | ((long) type << 2) | cardType;
+    }
+
+    private static class State {
+        private final BackfillCutoff cutoff;
+        private final ConcurrentHashMap<Long, Accumulator> hours = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Long, Accumulator> days = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Long, Accumulator> months = new ConcurrentHashMap<>();
+        private volatile boolean ready;
+
+        State(BackfillCutoff cutoff) {
+            this.cutoff = cutoff;
+        }
+
+        void add(OperationCarte operation, TypeCarte cardType) {
+            add(operation.date(), operation.type(), cardType,
+                1, operation.amountCents(), operation.amountCents(), operation.amountCents());
+        }
+
+        void add(LocalDateTime time, TypeOperation type, TypeCarte cardType, long count, long sum, long min, long max) {
+            int t = type.ordinal();
+            int c = cardType.ordinal();
+            hours.computeIfAbsent(key(hourIndex(time), t, c), k -> new Accumulator()).add(count, sum, min, max);
+            days.computeIfAbsent(key(dayIndex(time), t, c), k -> new Accumulator()).add(count, sum, min, max);
+            months.computeIfAbsent(key(monthIndex(time), t, c), k -> new Accumulator()).add(count, sum, min, max);
+        }
+
+        void mergeInto(Accumulator[][] cells, Map<Long, Accumulator> buckets, long periodIndex) {
+            for (int t = 0; t < TYPES.length; t++) {
+                for (int c = 0; c < CARD_TYPES.length; c++) {
+                    Accumulator bucket = buckets.get(key(periodIndex, t, c));
+                    if (bucket != null) {
+                        cells[t][c].merge(bucket);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Accumulator {
+        private long count;
+        private long sum;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        synchronized void add(long count, long sum, long min, long max) {
+            this.count += count;
+            this.sum = Money.add(this.sum, sum);
+            this.min = Math.min(this.min, min);
+            this.max = Math.max(this.max, max);
+        }
+
+        void merge(Accumulator other) {
+            long otherCount;
+            long otherSum;
+            long otherMin;
+            long otherMax;
+            synchronized (other) {
+                otherCount = other.count;
+                otherSum = other.sum;
+                otherMin = other.min;
+                otherMax = other.max;
+            }
+            if (otherCount > 0) {
+                add(otherCount, otherSum, otherMin, otherMax);
+            }
+        }
+
+        RollupStats toStats() {
+            if (count == 0) {
+                return RollupStats.EMPTY;
+            }
+            return new RollupStats(count, Money.toBigDecimal(sum), Money.toBigDecimal(min), Money.toBigDecimal(max));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.bank.service;
+
+import com.bank.util.LatencyHistogram;
+
+/**
+ * @param depth tasks waiting in the mailbox
+ * @param oldestWaitMillis age of the oldest waiting task, 0 when the mailbox is empty
+ * @param lag time tasks spent in the mailbox before running
+ * @param service time tasks spent running
+ */
+public record ShardMetrics(
+    int shard,
+    int depth,
+    int maxDepth,
+    long processed,
+    long rejected,
+    double oldestWaitMillis,
+    LatencyHistogram.Snapshot lag,
+    LatencyHistogram.Snapshot service
+) {}
@@ -0,0 +1,192 @@
+package com.bank.service;
+
+import com.bank.dao.SpendCounterState;
+import com.bank.service.rule.VelocityStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of the fraud velocity rings and the spend counters, written
+ * and read through a MappedByteBuffer. A fixed header carries a magic number, a
+ * format version, section counts, the payload length and CRC32 and its own
+ * CRC32. The file is written under a temporary name and renamed into place, so
+ * a crash mid-write leaves the previous snapshot intact.
+ * <p>
+ * Payload: location names (short length, UTF-8), then per card its id, ring size
+ * and entries oldest first (operation id, epoch second, cents, location index),
+ * then spend counters (card id, monthly flag, period index, cents, last id).
+ */
+class StateSnapshotFile {
+    static final int VERSION = 1;
+    private static final int MAGIC = 0x46534E50;
+    private static final int HEADER_BYTES = 52;
+    private static final int ENTRY_BYTES = 24;
+    private static final int SPEND_BYTES = 21;
+
+    record Contents(int catchUpFromId, long createdAtMillis, VelocityStore velocity, List<SpendCounterState> spend) {}
+
+    private StateSnapshotFile() {
+    }
+
+    /**
+     * Writes the snapshot and returns its size in bytes.
+     */
+    static long write(Path file, int catchUpFromId, VelocityStore velocity, List<SpendCounterState> spend) throws IOException {
+        List<byte[]> locations = new ArrayList<>(velocity.locationCount());
+        long payloadBytes = 0;
+        for (int i = 0; i < velocity.locationCount(); i++) {
+            String name = velocity.locationName(i);
+            byte[] bytes = name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+            locations.add(name == null ? null : bytes);
+            payloadBytes += 2 + bytes.length;
+        }
+        for (int slot = 0; slot < velocity.cardCount(); slot++) {
+            payloadBytes += 8 + (long) velocity.size(slot) * ENTRY_BYTES;
+        }
+        payloadBytes += (long) spend.size() * SPEND_BYTES;
+        if (HEADER_BYTES + payloadBytes > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot of " + payloadBytes + " bytes is too large to map");
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + payloadBytes);
+            buffer.position(HEADER_BYTES);
+
+            for (byte[] location : locations) {
+                buffer.putShort((short) (location == null ? -1 : location.length));
+                if (location != null) {
+                    buffer.put(location);
+                }
+            }
+            for (int slot = 0; slot < velocity.cardCount(); slot++) {
+                buffer.putInt(velocity.cardId(slot));
+                buffer.putInt(velocity.size(slot));
+                for (int back = velocity.size(slot) - 1; back >= 0; back--) {
+                    buffer.putInt(velocity.operationId(slot, back));
+                    buffer.putLong(velocity.epochSecond(slot, back));
+                    buffer.putLong(velocity.amountCents(slot, back));
+                    buffer.putInt(velocity.location(slot, back));
+                }
+            }
+            for (SpendCounterState counter : spend) {
+                buffer.putInt(counter.cardId());
+                buffer.put((byte) (counter.monthly() ? 1 : 0));
+                buffer.putInt(counter.periodIndex());
+                buffer.putLong(counter.cents());
+                buffer.putInt(counter.loadedUpToId());
+            }
+
+            CRC32 payloadCrc = new CRC32();
+            payloadCrc.update(buffer.slice(HEADER_BYTES, (int) payloadBytes));
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(8, System.currentTimeMillis());
+            buffer.putInt(16, catchUpFromId);
+            buffer.putInt(20, velocity.depth());
+            buffer.putInt(24, velocity.cardCount());
+            buffer.putInt(28, velocity.locationCount());
+            buffer.putInt(32, spend.size());
+            buffer.putLong(36, payloadBytes);
+            buffer.putInt(44, (int) payloadCrc.getValue());
+            buffer.putInt(48, headerCrc(buffer));
+            buffer.force();
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return HEADER_BYTES + payloadBytes;
+    }
+
+    /**
+     * Reads the snapshot, or returns empty if there is none.
+     *
+     * @throws IOException if the file is unreadable, of another version or fails a checksum
+     */
+    static Optional<Contents> read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + file + " has an invalid size of " + size + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a state snapshot");
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Snapshot " + file + " has version " + buffer.getInt(4) + ", expected " + VERSION);
+            }
+            if (buffer.getInt(48) != headerCrc(buffer)) {
+                throw new IOException("Snapshot " + file + " has a corrupt header");
+            }
+            long payloadBytes = buffer.getLong(36);
+            if (payloadBytes != size - HEADER_BYTES) {
+                throw new IOException("Snapshot " + file + " is truncated");
+            }
+            CRC32 payloadCrc = new CRC32();
+            payloadCrc.update(buffer.slice(HEADER_BYTES, (int) payloadBytes));
+            if ((int) payloadCrc.getValue() != buffer.getInt(44)) {
+                throw new IOException("Snapshot " + file + " fails its checksum");
+            }
+
+            int catchUpFromId = buffer.getInt(16);
+            int depth = buffer.getInt(20);
+            int cards = buffer.getInt(24);
+            int locationCount = buffer.getInt(28);
+            int spendCount = buffer.getInt(32);
+            buffer.position(HEADER_BYTES);
+
+            String[] locations = new String[locationCount];
+            for (int i = 0; i < locationCount; i++) {
+                short length = buffer.getShort();
+                if (length >= 0) {
+                    byte[] bytes = new byte[length];
+                    buffer.get(bytes);
+                    locations[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+            }
+            VelocityStore velocity = new VelocityStore(depth);
+            for (int card = 0; card < cards; card++) {
+                int cardId = buffer.getInt();
+                int entries = buffer.getInt();
+                for (int i = 0; i < entries; i++) {
+                    int operationId = buffer.getInt();
+                    long epochSecond = buffer.getLong();
+                    long cents = buffer.getLong();
+                    String location = locations[buffer.getInt()];
+                    velocity.record(cardId, operationId, epochSecond, cents, velocity.internLocation(location));
+                }
+            }
+            List<SpendCounterState> spend = new ArrayList<>(spendCount);
+            for (int i = 0; i < spendCount; i++) {
+                spend.add(new SpendCounterState(buffer.getInt(), buffer.get() == 1, buffer.getInt(), buffer.getLong(), buffer.getInt()));
+            }
+            return Optional.of(new Contents(catchUpFromId, buffer.getLong(8), velocity, spend));
+        } catch (RuntimeException e) {
+            throw new IOException("Snapshot " + file + " is malformed: " + e, e);
+        }
+    }
+
+    private static int headerCrc(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, 48));
+        return (int) crc.getValue();
+    }
+}
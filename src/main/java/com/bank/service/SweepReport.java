@@ -0,0 +1,23 @@
+package com.bank.service;
+
+import java.time.Duration;
+
+public record SweepReport(
+    long cards,
+    long operations,
+    long alerts,
+    Duration elapsed
+) {
+    public double cardsPerSecond() {
+        return perSecond(cards);
+    }
+
+    public double operationsPerSecond() {
+        return perSecond(operations);
+    }
+
+    private double perSecond(long count) {
+        long millis = Math.max(1, elapsed.toMillis());
+        return count * 1000.0 / millis;
+    }
+}
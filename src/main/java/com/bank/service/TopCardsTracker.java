@@ -0,0 +1,233 @@
+package com.bank.service;
+
+import com.bank.dao.OperationDAO;
+import com.bank.dao.RapportDAO;
+import com.bank.entity.OperationCarte;
+import com.bank.util.SpaceSaving;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Most used cards over several windows, kept up to date as operations are saved
+ * so the dashboard never scans OperationCarte. Each window is a Space-Saving
+ * sketch; the last 24 hours are an hourly ring of sketches merged on read.
+ * Counts are exact while a window holds no more distinct cards than the sketch
+ * capacity, and overestimate by at most total/capacity beyond that.
+ */
+public class TopCardsTracker {
+    public enum Window {
+        ALL_TIME,
+        LAST_24H,
+        THIS_MONTH
+    }
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final int HOURS = 24;
+
+    private static volatile TopCardsTracker instance;
+
+    private volatile int capacity;
+    private final RapportDAO rapportDAO;
+    private final OperationDAO operationDAO;
+    private volatile State state;
+
+    public TopCardsTracker(int capacity) {
+        requireCapacity(capacity);
+        this.capacity = capacity;
+        this.rapportDAO = new RapportDAO();
+        this.operationDAO = new OperationDAO();
+        this.state = new State(BackfillCutoff.NONE, capacity, LocalDateTime.now());
+    }
+
+    public static TopCardsTracker getInstance() {
+        if (instance == null) {
+            synchronized (TopCardsTracker.class) {
+                if (instance == null) {
+                    instance = new TopCardsTracker(DEFAULT_CAPACITY);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void record(OperationCarte operation) {
+        State current = state;
+        if (!current.cutoff.admits(operation)) {
+            return;
+        }
+        current.add(operation.date(), operation.cardId(), 1);
+    }
+
+    public void invalidate() {
+        state = new State(BackfillCutoff.NONE, capacity, LocalDateTime.now());
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Changes the number of cards each sketch keeps. The sketches are dropped and
+     * backfilled at the new capacity on the next read.
+     */
+    public synchronized void setCapacity(int capacity) {
+        requireCapacity(capacity);
+        this.capacity = capacity;
+        invalidate();
+    }
+
+    /** Top cards with their estimated counts, as plain entries; see {@link #topEstimates}. */
+    public List<Map.Entry<Integer, Long>> top(Window window, int k) throws SQLException {
+        List<SpaceSaving.Entry> entries = topEstimates(window, k);
+        List<Map.Entry<Integer, Long>> cards = new ArrayList<>(entries.size());
+        for (SpaceSaving.Entry entry : entries) {
+            cards.add(new AbstractMap.SimpleImmutableEntry<>(entry.key(), entry.count()));
+        }
+        return cards;
+    }
+
+    /**
+     * Top cards with their sketch counts. A count overestimates the card's real
+     * count by at most the entry's error, which stays 0 while the window holds no
+     * more distinct cards than the capacity.
+     */
+    public List<SpaceSaving.Entry> topEstimates(Window window, int k) throws SQLException {
+        State current = loadedState();
+        if (k < 1 || k > current.allTime.capacity()) {
+            throw new IllegalArgumentException("K must be between 1 and " + current.allTime.capacity());
+        }
+        return current.top(window, k, LocalDateTime.now());
+    }
+
+    private static void requireCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Top cards capacity must be positive");
+        }
+    }
+
+    private State loadedState() throws SQLException {
+        State current = state;
+        if (current.ready) {
+            return current;
+        }
+
+        synchronized (this) {
+            current = state;
+            if (current.ready) {
+                return current;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            BackfillCutoff cutoff = BackfillCutoff.start();
+            State loading = new State(cutoff, capacity, now);
+            state = loading;
+            try {
+                cutoff.take(rapportDAO, operationDAO);
+                rapportDAO.forEachCardActivity(cutoff.upToId(), cutoff.excludedIds(), null, activity ->
+                    loading.allTime.add(activity.cardId(), activity.operations()));
+                rapportDAO.forEachCardActivity(cutoff.upToId(), cutoff.excludedIds(), monthStart(now), activity ->
+                    loading.addToMonth(monthIndex(now), activity.cardId(), activity.operations()));
+                rapportDAO.forEachHourlyCardActivity(cutoff.upToId(), cutoff.excludedIds(), firstTrackedHour(now), activity ->
+                    loading.addToHour(hourIndex(activity.hour()), activity.cardId(), activity.operations()));
+                for (OperationCarte operation : cutoff.journaledToAdd()) {
+                    loading.add(operation.date(), operation.cardId(), 1);
+                }
+            } catch (SQLException | RuntimeException e) {
+                state = new State(BackfillCutoff.NONE, capacity, now);
+                throw e;
+            }
+            cutoff.finish();
+            loading.ready = true;
+            return loading;
+        }
+    }
+
+    private static long hourIndex(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 3600;
+    }
+
+    private static int monthIndex(LocalDateTime time) {
+        return time.getYear() * 12 + time.getMonthValue() - 1;
+    }
+
+    private static LocalDateTime monthStart(LocalDateTime time) {
+        return time.toLocalDate().withDayOfMonth(1).atStartOfDay();
+    }
+
+    private static LocalDateTime firstTrackedHour(LocalDateTime now) {
+        return now.truncatedTo(ChronoUnit.HOURS).minusHours(HOURS - 1);
+    }
+
+    private static class State {
+        private final BackfillCutoff cutoff;
+        private final SpaceSaving allTime;
+        private final SpaceSaving[] hours = new SpaceSaving[HOURS];
+        private final long[] hourIndexes = new long[HOURS];
+        private SpaceSaving month;
+        private int monthIndex;
+        private volatile boolean ready;
+
+        State(BackfillCutoff cutoff, int capacity, LocalDateTime now) {
+            this.cutoff = cutoff;
+            this.allTime = new SpaceSaving(capacity);
+            this.month = new SpaceSaving(capacity);
+            this.monthIndex = monthIndex(now);
+            for (int i = 0; i < HOURS; i++) {
+                hours[i] = new SpaceSaving(capacity);
+                hourIndexes[i] = Long.MIN_VALUE;
+            }
+        }
+
+        void add(LocalDateTime time, int cardId, long operations) {
+            allTime.add(cardId, operations);
+            addToMonth(monthIndex(time), cardId, operations);
+            addToHour(hourIndex(time), cardId, operations);
+        }
+
+        synchronized void addToMonth(int index, int cardId, long operations) {
+            if (index > monthIndex) {
+                month = new SpaceSaving(allTime.capacity());
+                monthIndex = index;
+            }
+            if (index == monthIndex) {
+                month.add(cardId, operations);
+            }
+        }
+
+        synchronized void addToHour(long index, int cardId, long operations) {
+            int slot = (int) Math.floorMod(index, (long) HOURS);
+            if (index > hourIndexes[slot]) {
+                hours[slot].clear();
+                hourIndexes[slot] = index;
+            }
+            if (index == hourIndexes[slot]) {
+                hours[slot].add(cardId, operations);
+            }
+        }
+
+        synchronized List<SpaceSaving.Entry> top(Window window, int k, LocalDateTime now) {
+            return switch (window) {
+                case ALL_TIME -> allTime.top(k);
+                case THIS_MONTH -> monthIndex == monthIndex(now) ? month.top(k) : List.of();
+                case LAST_24H -> SpaceSaving.merge(recentHours(hourIndex(now)), k);
+            };
+        }
+
+        private List<SpaceSaving> recentHours(long currentHour) {
+            List<SpaceSaving> recent = new ArrayList<>(HOURS);
+            for (int i = 0; i < HOURS; i++) {
+                if (hourIndexes[i] > currentHour - HOURS && hourIndexes[i] <= currentHour) {
+                    recent.add(hours[i]);
+                }
+            }
+            return recent;
+        }
+    }
+}
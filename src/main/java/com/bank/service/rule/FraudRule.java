@@ -0,0 +1,53 @@
+package com.bank.service.rule;
+
+import com.bank.entity.OperationCarte;
+import com.bank.service.FraudHit;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+public interface FraudRule {
+
+    String name();
+
+    int lookback();
+
+    void evaluate(List<OperationCarte> operations, int watermark, List<FraudHit> hits);
+
+    static boolean containsNew(List<OperationCarte> operations, int from, int count, int watermark) {
+        for (int i = from; i < from + count; i++) {
+            if (operations.get(i).id() > watermark) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String dedupKey(String rule, List<OperationCarte> operations, int from, int count) {
+        StringBuilder ids = new StringBuilder();
+        for (int i = from; i < from + count; i++) {
+            if (i > from) {
+                ids.append(',');
+            }
+            ids.append(operations.get(i).id());
+        }
+        return hashedKey(rule, ids);
+    }
+
+    /**
+     * The rule name followed by a SHA-256 of the operation ids, so the key keeps
+     * a fixed width in cleDedup however many operations the rule spans. Callers
+     * list the ids newest first, so the batch and streaming paths agree.
+     */
+    static String hashedKey(String rule, CharSequence ids) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(ids.toString().getBytes(StandardCharsets.US_ASCII));
+            return rule + ':' + HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.bank.service.rule;
+
+import com.bank.entity.NiveauAlerte;
+import com.bank.entity.OperationCarte;
+import com.bank.service.FraudAction;
+import com.bank.service.FraudHit;
+import com.bank.util.Money;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class HighAmountRule implements VelocityRule {
+    public static final String NAME = "HIGH_AMOUNT";
+
+    private final long thresholdCents;
+
+    public HighAmountRule(BigDecimal threshold) {
+        this.thresholdCents = Money.toCents(threshold);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int lookback() {
+        return 0;
+    }
+
+    @Override
+    public void evaluate(List<OperationCarte> operations, int watermark, List<FraudHit> hits) {
+        for (int i = 0; i < operations.size(); i++) {
+            OperationCarte op = operations.get(i);
+            if (op.id() > watermark && op.amountCents() > thresholdCents) {
+                String description = String.format(
+                    "High amount detected: %s EUR at %s on %s",
+                    Money.format(op.amountCents()),
+                    op.location(),
+                    op.date()
+                );
+                hits.add(new FraudHit(op.cardId(), description, NiveauAlerte.WARNING, FraudAction.NONE,
+                    FraudRule.dedupKey(NAME, operations, i, 1)));
+            }
+        }
+    }
+
+    @Override
+    public FraudHit evaluateLatest(VelocityStore store, int slot, OperationCarte latest) {
+        if (store.amountCents(slot, 0) <= thresholdCents) {
+            return null;
+        }
+
+        String description = String.format(
+            "High amount detected: %s EUR at %s on %s",
+            Money.format(latest.amountCents()),
+            latest.location(),
+            latest.date()
+        );
+        return new FraudHit(latest.cardId(), description, NiveauAlerte.WARNING, FraudAction.NONE,
+            VelocityRule.dedupKey(NAME, store, slot, 1));
+    }
+}
@@ -0,0 +1,76 @@
+package com.bank.service.rule;
+
+import com.bank.entity.NiveauAlerte;
+import com.bank.entity.OperationCarte;
+import com.bank.service.FraudAction;
+import com.bank.service.FraudHit;
+
+import java.time.Duration;
+import java.util.List;
+
+public class MultipleAttemptsRule implements VelocityRule {
+    public static final String NAME = "MULTIPLE_ATTEMPTS";
+
+    private final int attempts;
+    private final long maxMinutes;
+
+    public MultipleAttemptsRule(int attempts, long maxMinutes) {
+        this.attempts = attempts;
+        this.maxMinutes = maxMinutes;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int lookback() {
+        return attempts - 1;
+    }
+
+    @Override
+    public void evaluate(List<OperationCarte> operations, int watermark, List<FraudHit> hits) {
+        for (int i = 0; i + attempts <= operations.size(); i++) {
+            if (!FraudRule.containsNew(operations, i, attempts, watermark)) {
+                continue;
+            }
+
+            OperationCarte first = operations.get(i);
+            OperationCarte last = operations.get(i + attempts - 1);
+
+            Duration duration = Duration.between(last.date(), first.date());
+            long minutesDiff = Math.abs(duration.toMinutes());
+
+            if (minutesDiff <= maxMinutes) {
+                String description = String.format(
+                    "Multiple attempts detected: %d+ operations in %d minutes",
+                    attempts,
+                    minutesDiff
+                );
+                hits.add(new FraudHit(first.cardId(), description, NiveauAlerte.CRITICAL, FraudAction.SUSPEND,
+                    FraudRule.dedupKey(NAME, operations, i, attempts)));
+            }
+        }
+    }
+
+    @Override
+    public FraudHit evaluateLatest(VelocityStore store, int slot, OperationCarte latest) {
+        if (store.size(slot) < attempts) {
+            return null;
+        }
+
+        long minutesDiff = Math.abs(store.epochSecond(slot, 0) - store.epochSecond(slot, attempts - 1)) / 60;
+        if (minutesDiff > maxMinutes) {
+            return null;
+        }
+
+        String description = String.format(
+            "Multiple attempts detected: %d+ operations in %d minutes",
+            attempts,
+            minutesDiff
+        );
+        return new FraudHit(latest.cardId(), description, NiveauAlerte.CRITICAL, FraudAction.SUSPEND,
+            VelocityRule.dedupKey(NAME, store, slot, attempts));
+    }
+}
@@ -0,0 +1,82 @@
+package com.bank.service.rule;
+
+import com.bank.entity.NiveauAlerte;
+import com.bank.entity.OperationCarte;
+import com.bank.service.FraudAction;
+import com.bank.service.FraudHit;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+public class RapidOperationsRule implements VelocityRule {
+    public static final String NAME = "RAPID_OPERATIONS";
+
+    private final long maxMinutes;
+
+    public RapidOperationsRule(long maxMinutes) {
+        this.maxMinutes = maxMinutes;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int lookback() {
+        return 1;
+    }
+
+    @Override
+    public void evaluate(List<OperationCarte> operations, int watermark, List<FraudHit> hits) {
+        for (int i = 0; i < operations.size() - 1; i++) {
+            OperationCarte op1 = operations.get(i);
+            OperationCarte op2 = operations.get(i + 1);
+
+            if (op1.id() <= watermark && op2.id() <= watermark) {
+                continue;
+            }
+
+            Duration duration = Duration.between(op2.date(), op1.date());
+            long minutesDiff = Math.abs(duration.toMinutes());
+
+            if (minutesDiff <= maxMinutes && !op1.location().equals(op2.location())) {
+                String description = String.format(
+                    "Suspicious operations: %s at %s and %s at %s in %d minutes",
+                    op1.location(),
+                    op1.date(),
+                    op2.location(),
+                    op2.date(),
+                    minutesDiff
+                );
+                hits.add(new FraudHit(op1.cardId(), description, NiveauAlerte.CRITICAL, FraudAction.BLOCK,
+                    FraudRule.dedupKey(NAME, operations, i, 2)));
+            }
+        }
+    }
+
+    @Override
+    public FraudHit evaluateLatest(VelocityStore store, int slot, OperationCarte latest) {
+        if (store.size(slot) < 2 || store.location(slot, 0) == store.location(slot, 1)) {
+            return null;
+        }
+
+        long minutesDiff = Math.abs(store.epochSecond(slot, 0) - store.epochSecond(slot, 1)) / 60;
+        if (minutesDiff > maxMinutes) {
+            return null;
+        }
+
+        String description = String.format(
+            "Suspicious operations: %s at %s and %s at %s in %d minutes",
+            latest.location(),
+            latest.date(),
+            store.locationName(store.location(slot, 1)),
+            LocalDateTime.ofEpochSecond(store.epochSecond(slot, 1), 0, ZoneOffset.UTC),
+            minutesDiff
+        );
+        return new FraudHit(latest.cardId(), description, NiveauAlerte.CRITICAL, FraudAction.BLOCK,
+            VelocityRule.dedupKey(NAME, store, slot, 2));
+    }
+}
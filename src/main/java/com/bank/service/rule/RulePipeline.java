@@ -0,0 +1,184 @@
+package com.bank.service.rule;
+
+import com.bank.entity.OperationCarte;
+import com.bank.service.FraudAction;
+import com.bank.service.FraudHit;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class RulePipeline {
+    private static final long REORDER_EVERY = 1024;
+
+    private static final Comparator<RuleStatistics> BY_COST_AND_SELECTIVITY =
+        Comparator.comparing((RuleStatistics statistics) -> statistics.blocks() == 0)
+            .thenComparingDouble(statistics -> statistics.blocks() == 0
+                ? statistics.averageNanos()
+                : statistics.averageNanos() / statistics.blockRate());
+
+    private final List<MeasuredRule> rules;
+    private final int lookback;
+    private final boolean velocityOnly;
+    private final LongAdder evaluations = new LongAdder();
+    private volatile List<MeasuredRule> order;
+
+    public RulePipeline(List<FraudRule> rules) {
+        if (rules.isEmpty()) {
+            throw new IllegalArgumentException("At least one fraud rule is required");
+        }
+
+        this.rules = new ArrayList<>();
+        int maxLookback = 0;
+        boolean allVelocity = true;
+        for (FraudRule rule : rules) {
+            this.rules.add(new MeasuredRule(rule));
+            maxLookback = Math.max(maxLookback, rule.lookback());
+            allVelocity &= rule instanceof VelocityRule;
+        }
+        this.lookback = maxLookback;
+        this.velocityOnly = allVelocity;
+        this.order = List.copyOf(this.rules);
+    }
+
+    public static RulePipeline defaultRules() {
+        return new RulePipeline(List.of(
+            new HighAmountRule(new BigDecimal("5000")),
+            new RapidOperationsRule(30),
+            new MultipleAttemptsRule(5, 60)
+        ));
+    }
+
+    public int lookback() {
+        return lookback;
+    }
+
+    public boolean velocityOnly() {
+        return velocityOnly;
+    }
+
+    public List<FraudHit> evaluateLatest(VelocityStore store, int slot, OperationCarte latest) {
+        List<FraudHit> hits = List.of();
+
+        for (MeasuredRule measured : order) {
+            long start = System.nanoTime();
+            FraudHit hit = ((VelocityRule) measured.rule).evaluateLatest(store, slot, latest);
+            boolean block = hit != null && hit.action() == FraudAction.BLOCK;
+            measured.record(System.nanoTime() - start, hit != null, block);
+
+            if (hit != null) {
+                if (hits.isEmpty()) {
+                    hits = new ArrayList<>();
+                }
+                hits.add(hit);
+            }
+            if (block) {
+                break;
+            }
+        }
+
+        countEvaluation();
+        return hits;
+    }
+
+    /**
+     * Runs every rule. The list can hold many new operations and the caller then
+     * moves its watermark past all of them, so a rule skipped after a block
+     * anywhere in the batch would never see the others again. Only
+     * {@link #evaluateLatest}, which looks at a single operation, stops early.
+     */
+    public List<FraudHit> evaluate(List<OperationCarte> operations, int watermark) {
+        List<FraudHit> hits = new ArrayList<>();
+
+        for (MeasuredRule measured : order) {
+            int before = hits.size();
+            long start = System.nanoTime();
+            measured.rule.evaluate(operations, watermark, hits);
+            measured.record(System.nanoTime() - start, hits.size() > before, blocks(hits, before));
+        }
+
+        countEvaluation();
+        return hits;
+    }
+
+    /**
+     * Evaluates an operation that is not saved yet with either the rules that
+     * only look at the operation itself or the rules that need card history.
+     * Screening is not counted in the rule statistics.
+     */
+    public List<FraudHit> screen(List<OperationCarte> operations, int watermark, boolean withHistory) {
+        List<FraudHit> hits = new ArrayList<>();
+        for (MeasuredRule measured : order) {
+            if ((measured.rule.lookback() > 0) == withHistory) {
+                measured.rule.evaluate(operations, watermark, hits);
+            }
+        }
+        return hits;
+    }
+
+    public List<RuleStatistics> statistics() {
+        List<RuleStatistics> statistics = new ArrayList<>();
+        for (MeasuredRule measured : order) {
+            statistics.add(measured.snapshot());
+        }
+        return statistics;
+    }
+
+    private static boolean blocks(List<FraudHit> hits, int from) {
+        for (int i = from; i < hits.size(); i++) {
+            if (hits.get(i).action() == FraudAction.BLOCK) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void countEvaluation() {
+        evaluations.increment();
+        if (evaluations.sum() % REORDER_EVERY == 0) {
+            reorder();
+        }
+    }
+
+    private void reorder() {
+        Map<MeasuredRule, RuleStatistics> snapshots = new IdentityHashMap<>();
+        for (MeasuredRule measured : rules) {
+            snapshots.put(measured, measured.snapshot());
+        }
+
+        List<MeasuredRule> sorted = new ArrayList<>(rules);
+        sorted.sort(Comparator.comparing(snapshots::get, BY_COST_AND_SELECTIVITY));
+        order = List.copyOf(sorted);
+    }
+
+    private static class MeasuredRule {
+        private final FraudRule rule;
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder blocks = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        MeasuredRule(FraudRule rule) {
+            this.rule = rule;
+        }
+
+        void record(long elapsedNanos, boolean hit, boolean block) {
+            evaluations.increment();
+            nanos.add(elapsedNanos);
+            if (hit) {
+                hits.increment();
+            }
+            if (block) {
+                blocks.increment();
+            }
+        }
+
+        RuleStatistics snapshot() {
+            return new RuleStatistics(rule.name(), evaluations.sum(), hits.sum(), blocks.sum(), nanos.sum());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.bank.service.rule;
+
+public record RuleStatistics(
+    String rule,
+    long evaluations,
+    long hits,
+    long blocks,
+    long totalNanos
+) {
+    public double hitRate() {
+        return evaluations == 0 ? 0 : (double) hits / evaluations;
+    }
+
+    public double blockRate() {
+        return evaluations == 0 ? 0 : (double) blocks / evaluations;
+    }
+
+    public double averageNanos() {
+        return evaluations == 0 ? 0 : (double) totalNanos / evaluations;
+    }
+}
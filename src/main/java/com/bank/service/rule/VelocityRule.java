@@ -0,0 +1,20 @@
+package com.bank.service.rule;
+
+import com.bank.entity.OperationCarte;
+import com.bank.service.FraudHit;
+
+public interface VelocityRule extends FraudRule {
+
+    FraudHit evaluateLatest(VelocityStore store, int slot, OperationCarte latest);
+
+    static String dedupKey(String rule, VelocityStore store, int slot, int count) {
+        StringBuilder ids = new StringBuilder();
+        for (int back = 0; back < count; back++) {
+            if (back > 0) {
+                ids.append(',');
+            }
+            ids.append(store.operationId(slot, back));
+        }
+        return FraudRule.hashedKey(rule, ids);
+    }
+}
@@ -0,0 +1,315 @@
+package com.bank.service.rule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recent operations per card in fixed-size rings, for the velocity rules. At most
+ * {@code maxCards} cards are kept: inserting one more evicts the quarter of cards
+ * whose latest operation is oldest. An evicted card reloads its history from the
+ * database on its next operation, as a card never seen does.
+ * <p>
+ * Locations are interned to ids. Once the table holds twice as many names as the
+ * rings have entries, ids no ring still uses are reclaimed, so the table stays
+ * proportional to the rings. A location id is only valid until the next call to
+ * {@link #internLocation}: intern right before {@link #record}.
+ */
+public class VelocityStore {
+    public static final int DEFAULT_MAX_CARDS = 262_144;
+
+    private static final int EMPTY = -1;
+    private static final int INITIAL_CARDS = 1024;
+
+    private final int ringSize;
+    private final int ringMask;
+    private final int maxCards;
+
+    private int[] keys;
+    private int[] keySlots;
+    private int cardCount;
+
+    private int[] cardIds;
+    private int[] heads;
+    private int[] sizes;
+    private long[] epochSeconds;
+    private long[] amountCents;
+    private int[] locations;
+    private int[] operationIds;
+
+    private final Map<String, Integer> locationIds = new HashMap<>();
+    private final List<String> locationNames = new ArrayList<>();
+
+    public VelocityStore(int depth) {
+        this(depth, DEFAULT_MAX_CARDS);
+    }
+
+    public VelocityStore(int depth, int maxCards) {
+        if (maxCards < 1) {
+            throw new IllegalArgumentException("Velocity store must hold at least one card");
+        }
+
+        this.ringSize = Integer.highestOneBit(Math.max(1, depth) * 2 - 1);
+        this.ringMask = ringSize - 1;
+        this.maxCards = maxCards;
+
+        int cards = Math.min(INITIAL_CARDS, maxCards);
+        this.keys = new int[Integer.highestOneBit(cards * 2 - 1) * 2];
+        this.keySlots = new int[keys.length];
+        Arrays.fill(keys, EMPTY);
+
+        this.cardIds = new int[cards];
+        this.heads = new int[cards];
+        this.sizes = new int[cards];
+        this.epochSeconds = new long[cards * ringSize];
+        this.amountCents = new long[cards * ringSize];
+        this.locations = new int[cards * ringSize];
+        this.operationIds = new int[cards * ringSize];
+    }
+
+    public int depth() {
+        return ringSize;
+    }
+
+    public int cardCount() {
+        return cardCount;
+    }
+
+    public int locationCount() {
+        return locationNames.size();
+    }
+
+    /**
+     * Deep copy, cheap enough to take under the caller's lock and read at leisure.
+     */
+    public VelocityStore copy() {
+        VelocityStore copy = new VelocityStore(ringSize, maxCards);
+        copy.keys = keys.clone();
+        copy.keySlots = keySlots.clone();
+        copy.cardCount = cardCount;
+        copy.cardIds = cardIds.clone();
+        copy.heads = heads.clone();
+        copy.sizes = sizes.clone();
+        copy.epochSeconds = epochSeconds.clone();
+        copy.amountCents = amountCents.clone();
+        copy.locations = locations.clone();
+        copy.operationIds = operationIds.clone();
+        copy.locationIds.putAll(locationIds);
+        copy.locationNames.addAll(locationNames);
+        return copy;
+    }
+
+    public boolean contains(int cardId) {
+        return find(cardId) != EMPTY;
+    }
+
+    public int slotOf(int cardId) {
+        return find(cardId);
+    }
+
+    public int record(int cardId, int operationId, long epochSecond, long cents, int locationId) {
+        int slot = find(cardId);
+        if (slot == EMPTY) {
+            slot = insert(cardId);
+        }
+
+        int head = (heads[slot] + 1) & ringMask;
+        int index = slot * ringSize + head;
+        epochSeconds[index] = epochSecond;
+        amountCents[index] = cents;
+        locations[index] = locationId;
+        operationIds[index] = operationId;
+
+        heads[slot] = head;
+        if (sizes[slot] < ringSize) {
+            sizes[slot]++;
+        }
+        return slot;
+    }
+
+    public int size(int slot) {
+        return sizes[slot];
+    }
+
+    public int cardId(int slot) {
+        return cardIds[slot];
+    }
+
+    public long epochSecond(int slot, int back) {
+        return epochSeconds[index(slot, back)];
+    }
+
+    public long amountCents(int slot, int back) {
+        return amountCents[index(slot, back)];
+    }
+
+    public int location(int slot, int back) {
+        return locations[index(slot, back)];
+    }
+
+    public int operationId(int slot, int back) {
+        return operationIds[index(slot, back)];
+    }
+
+    public int internLocation(String location) {
+        Integer id = locationIds.get(location);
+        if (id != null) {
+            return id;
+        }
+        if (locationNames.size() >= 2 * Math.max(cardCount, INITIAL_CARDS) * ringSize) {
+            compactLocations();
+        }
+        int created = locationNames.size();
+        locationNames.add(location);
+        locationIds.put(location, created);
+        return created;
+    }
+
+    public String locationName(int locationId) {
+        return locationNames.get(locationId);
+    }
+
+    /**
+     * Renumbers the locations still in a ring from zero and forgets the rest.
+     */
+    private void compactLocations() {
+        int[] renumbered = new int[locationNames.size()];
+        Arrays.fill(renumbered, EMPTY);
+        List<String> kept = new ArrayList<>();
+        for (int slot = 0; slot < cardCount; slot++) {
+            for (int back = 0; back < sizes[slot]; back++) {
+                int index = index(slot, back);
+                int location = locations[index];
+                if (renumbered[location] == EMPTY) {
+                    renumbered[location] = kept.size();
+                    kept.add(locationNames.get(location));
+                }
+                locations[index] = renumbered[location];
+            }
+        }
+
+        locationNames.clear();
+        locationNames.addAll(kept);
+        locationIds.clear();
+        for (int i = 0; i < kept.size(); i++) {
+            locationIds.put(kept.get(i), i);
+        }
+    }
+
+    private int index(int slot, int back) {
+        if (back < 0 || back >= sizes[slot]) {
+            throw new IndexOutOfBoundsException("No operation " + back + " back for card " + cardIds[slot]);
+        }
+        return slot * ringSize + ((heads[slot] - back) & ringMask);
+    }
+
+    private int find(int cardId) {
+        int mask = keys.length - 1;
+        int i = mix(cardId) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == cardId) {
+                return keySlots[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    private int insert(int cardId) {
+        if (cardCount == maxCards) {
+            evictIdle();
+        }
+        if (cardCount == cardIds.length) {
+            growSlots();
+        }
+        if ((cardCount + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+
+        int slot = cardCount++;
+        cardIds[slot] = cardId;
+        heads[slot] = ringMask;
+        sizes[slot] = 0;
+        put(keys, keySlots, cardId, slot);
+        return slot;
+    }
+
+    /**
+     * Drops the quarter of cards whose latest operation is oldest and packs the
+     * remaining slots to the front.
+     */
+    private void evictIdle() {
+        long[] latest = new long[cardCount];
+        for (int slot = 0; slot < cardCount; slot++) {
+            latest[slot] = sizes[slot] == 0 ? Long.MIN_VALUE : epochSeconds[slot * ringSize + heads[slot]];
+        }
+        int target = Math.max(1, cardCount / 4);
+        long[] sorted = latest.clone();
+        Arrays.sort(sorted);
+        long cutoff = sorted[target - 1];
+
+        int evicted = 0;
+        int kept = 0;
+        for (int slot = 0; slot < cardCount; slot++) {
+            if (evicted < target && latest[slot] <= cutoff) {
+                evicted++;
+                continue;
+            }
+            if (kept != slot) {
+                moveSlot(slot, kept);
+            }
+            kept++;
+        }
+        cardCount = kept;
+        rehash(keys.length);
+    }
+
+    private void moveSlot(int from, int to) {
+        cardIds[to] = cardIds[from];
+        heads[to] = heads[from];
+        sizes[to] = sizes[from];
+        System.arraycopy(epochSeconds, from * ringSize, epochSeconds, to * ringSize, ringSize);
+        System.arraycopy(amountCents, from * ringSize, amountCents, to * ringSize, ringSize);
+        System.arraycopy(locations, from * ringSize, locations, to * ringSize, ringSize);
+        System.arraycopy(operationIds, from * ringSize, operationIds, to * ringSize, ringSize);
+    }
+
+    private void growSlots() {
+        int capacity = Math.min(cardIds.length * 2, maxCards);
+        cardIds = Arrays.copyOf(cardIds, capacity);
+        heads = Arrays.copyOf(heads, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        epochSeconds = Arrays.copyOf(epochSeconds, capacity * ringSize);
+        amountCents = Arrays.copyOf(amountCents, capacity * ringSize);
+        locations = Arrays.copyOf(locations, capacity * ringSize);
+        operationIds = Arrays.copyOf(operationIds, capacity * ringSize);
+    }
+
+    private void rehash(int capacity) {
+        int[] newKeys = new int[capacity];
+        int[] newSlots = new int[capacity];
+        Arrays.fill(newKeys, EMPTY);
+        for (int slot = 0; slot < cardCount; slot++) {
+            put(newKeys, newSlots, cardIds[slot], slot);
+        }
+        keys = newKeys;
+        keySlots = newSlots;
+    }
+
+    private static void put(int[] keys, int[] slots, int cardId, int slot) {
+        int mask = keys.length - 1;
+        int i = mix(cardId) & mask;
+        while (keys[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = cardId;
+        slots[i] = slot;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,130 @@
+package com.bank.ui;
+
+import com.bank.entity.TypeOperation;
+import com.bank.generator.DatabaseSink;
+import com.bank.generator.FileSink;
+import com.bank.generator.GeneratorConfig;
+import com.bank.generator.GeneratorReport;
+import com.bank.generator.GeneratorSink;
+import com.bank.generator.TransactionGenerator;
+import com.bank.util.Money;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+public class GenerateCommand {
+    private static final String USAGE = """
+        Usage: generate (--out <directory> | --db <labels.csv>) [options]
+          --seed N               random seed (default 42)
+          --clients N            number of clients (default 10000)
+          --operations N         number of operations (default 1000000)
+          --cards-per-client N   maximum cards per client (default 3)
+          --start DATE           first possible operation date (default 2024-01-01T00:00)
+          --amount-median EUR    median operation amount (default 40.00)
+          --amount-sigma S       log-normal spread of amounts (default 1.0)
+          --types T=W,...        operation type weights (default PURCHASE=0.6,WITHDRAWAL=0.25,ONLINEPAYMENT=0.15)
+          --locations A;B;...    location names (default: 20 cities)
+          --location-skew S      Zipf exponent over locations (default 1.1)
+          --home-share S         share of operations at a card's home location (default 0.85)
+          --interarrival MIN     mean minutes between operations of a card (default 720)
+          --fraud-rate R         probability of a fraud pattern after an operation (default 0.001)""";
+
+    public static void run(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                System.out.println(USAGE);
+                return;
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        if (options.containsKey("out") == options.containsKey("db")) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        GeneratorConfig config;
+        try {
+            config = config(options);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            System.out.println("Invalid option: " + e.getMessage());
+            System.out.println(USAGE);
+            return;
+        }
+
+        try (GeneratorSink sink = options.containsKey("out")
+                ? new FileSink(Path.of(options.get("out")))
+                : new DatabaseSink(Path.of(options.get("db")))) {
+            System.out.printf("Generating %d operations for %d clients (seed %d)...%n",
+                config.operations(), config.clients(), config.seed());
+            GeneratorReport report = new TransactionGenerator(config).generate(sink, progress ->
+                System.out.printf("  %d operations, %d labeled as fraud (%.0f ops/s)%n",
+                    progress.operations(), progress.fraudOperations(), progress.operationsPerSecond()));
+
+            System.out.printf("Generated %d clients, %d cards and %d operations in %d ms (%.0f ops/s)%n",
+                report.clients(), report.cards(), report.operations(), report.elapsed().toMillis(),
+                report.operationsPerSecond());
+            report.labeledOperations().forEach((pattern, count) ->
+                System.out.printf("  %s: %d labeled operations (expected rule %s)%n", pattern, count, pattern.expectedRule()));
+        } catch (IOException e) {
+            System.out.println("File Error: " + e.getMessage());
+        } catch (SQLException e) {
+            System.out.println("SQL Error: " + e.getMessage());
+        }
+    }
+
+    private static GeneratorConfig config(Map<String, String> options) {
+        GeneratorConfig defaults = GeneratorConfig.defaults(
+            Long.parseLong(options.getOrDefault("seed", "42")),
+            Integer.parseInt(options.getOrDefault("clients", "10000")),
+            Long.parseLong(options.getOrDefault("operations", "1000000"))
+        );
+
+        return new GeneratorConfig(
+            defaults.seed(),
+            defaults.clients(),
+            intOption(options, "cards-per-client", defaults.maxCardsPerClient()),
+            defaults.operations(),
+            options.containsKey("start") ? LocalDateTime.parse(options.get("start")) : defaults.start(),
+            options.containsKey("amount-median")
+                ? Money.toCents(new BigDecimal(options.get("amount-median")))
+                : defaults.amountMedianCents(),
+            doubleOption(options, "amount-sigma", defaults.amountSigma()),
+            defaults.highAmountCents(),
+            options.containsKey("types") ? typeWeights(options.get("types")) : defaults.typeWeights(),
+            options.containsKey("locations") ? Arrays.asList(options.get("locations").split(";")) : defaults.locations(),
+            doubleOption(options, "location-skew", defaults.locationSkew()),
+            doubleOption(options, "home-share", defaults.homeLocationShare()),
+            doubleOption(options, "interarrival", defaults.meanInterArrivalMinutes()),
+            doubleOption(options, "fraud-rate", defaults.fraudRate())
+        );
+    }
+
+    private static Map<TypeOperation, Double> typeWeights(String value) {
+        Map<TypeOperation, Double> weights = new EnumMap<>(TypeOperation.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("expected TYPE=WEIGHT, found " + entry);
+            }
+            weights.put(TypeOperation.valueOf(parts[0].trim().toUpperCase()), Double.parseDouble(parts[1]));
+        }
+        return weights;
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        return options.containsKey(name) ? Integer.parseInt(options.get(name)) : defaultValue;
+    }
+
+    private static double doubleOption(Map<String, String> options, String name, double defaultValue) {
+        return options.containsKey(name) ? Double.parseDouble(options.get(name)) : defaultValue;
+    }
+}
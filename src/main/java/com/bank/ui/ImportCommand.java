@@ -0,0 +1,51 @@
+package com.bank.ui;
+
+import com.bank.service.FraudeService;
+import com.bank.service.ImportReport;
+import com.bank.service.ImportService;
+import com.bank.service.SweepReport;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+public class ImportCommand {
+
+    public static void run(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: import <file.csv|file.tsv> [--sweep]");
+            return;
+        }
+
+        Path file = Path.of(args[1]);
+        boolean sweep = args.length > 2 && args[2].equals("--sweep");
+        FraudeService fraudService = new FraudeService();
+        ImportService importService = new ImportService(fraudService);
+
+        try {
+            System.out.println("Importing " + file + "...");
+            ImportReport report = importService.importOperations(file, sweep, progress ->
+                System.out.printf("  %d rows read, %d rejected (%.0f rows/s)%n",
+                    progress.lines(), progress.rejected(), progress.rowsPerSecond()));
+
+            System.out.printf("Imported %d operations, rejected %d, in %d ms (%.0f rows/s)%n",
+                report.imported(), report.rejected(), report.elapsed().toMillis(), report.rowsPerSecond());
+            for (String rejection : report.rejections()) {
+                System.out.println("  " + rejection);
+            }
+
+            SweepReport sweepReport = report.sweep();
+            if (sweepReport != null) {
+                System.out.printf("Fraud sweep: %d cards, %d operations, %d alerts in %d ms%n",
+                    sweepReport.cards(), sweepReport.operations(), sweepReport.alerts(),
+                    sweepReport.elapsed().toMillis());
+            }
+        } catch (IOException e) {
+            System.out.println("File Error: " + e.getMessage());
+        } catch (SQLException e) {
+            System.out.println("SQL Error: " + e.getMessage());
+        } finally {
+            fraudService.shutdown();
+        }
+    }
+}
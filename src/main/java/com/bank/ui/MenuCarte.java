@@ -3,6 +3,7 @@ package com.bank.ui;
 import com.bank.entity.*;
 import com.bank.service.CarteService;
 import com.bank.service.ClientService;
+import com.bank.util.CacheStats;
 
 import java.math.BigDecimal;
 import java.sql.SQLException;
@@ -36,6 +37,7 @@ public class MenuCarte {
                 case 5 -> activateCard();
                 case 6 -> suspendCard();
                 case 7 -> blockCard();
+                case 8 -> displayCacheStatistics();
                 case 0 -> back = true;
                 default -> System.out.println("Invalid choice.");
             }
@@ -51,6 +53,7 @@ public class MenuCarte {
         System.out.println("5. Activate a card");
         System.out.println("6. Suspend a card");
         System.out.println("7. Block a card");
+        System.out.println("8. Card cache statistics");
         System.out.println("0. Back");
         System.out.println("===========================");
         System.out.print("Your choice: ");
@@ -230,6 +233,16 @@ public class MenuCarte {
         }
     }
 
+    private void displayCacheStatistics() {
+        CacheStats stats = carteService.getCacheStats();
+        System.out.println("\n--- Card Cache ---");
+        System.out.println("Entries: " + stats.size() + "/" + stats.maxSize());
+        System.out.printf("Hits: %d | Misses: %d | Hit rate: %.2f%%%n",
+            stats.hits(), stats.misses(), stats.hitRate() * 100);
+        System.out.println("Evictions: " + stats.evictions() + " | Expired: " + stats.expirations()
+            + " | Invalidated: " + stats.invalidations());
+    }
+
     private void displayCardDetails(Carte carte) {
         System.out.println("\n--- Card Details ---");
         System.out.println("ID: " + carte.getId());
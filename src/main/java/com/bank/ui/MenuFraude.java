@@ -2,7 +2,10 @@ package com.bank.ui;
 
 import com.bank.entity.AlerteFraude;
 import com.bank.entity.NiveauAlerte;
+import com.bank.service.AlertSinkMetrics;
 import com.bank.service.FraudeService;
+import com.bank.service.SweepReport;
+import com.bank.service.rule.RuleStatistics;
 
 import java.sql.SQLException;
 import java.time.format.DateTimeFormatter;
@@ -32,6 +35,8 @@ public class MenuFraude {
                 case 3 -> displayAllAlerts();
                 case 4 -> displayCriticalAlerts();
                 case 5 -> displayAlertsByLevel();
+                case 6 -> launchFullSweep();
+                case 7 -> displayRuleStatistics();
                 case 0 -> back = true;
                 default -> System.out.println("Invalid choice.");
             }
@@ -45,6 +50,8 @@ public class MenuFraude {
         System.out.println("3. Display all alerts");
         System.out.println("4. Display critical alerts");
         System.out.println("5. Filter by alert level");
+        System.out.println("6. Sweep all cards");
+        System.out.println("7. Rule statistics");
         System.out.println("0. Back");
         System.out.println("===========================");
         System.out.print("Your choice: ");
@@ -65,6 +72,40 @@ public class MenuFraude {
         }
     }
 
+    private void launchFullSweep() {
+        try {
+            System.out.println("\nSweep in progress...");
+            SweepReport report = fraudeService.sweepAll(progress ->
+                System.out.printf("  %d cards, %d operations scanned (%.0f cards/s, %.0f ops/s)%n",
+                    progress.cards(), progress.operations(),
+                    progress.cardsPerSecond(), progress.operationsPerSecond()));
+            System.out.printf("Sweep completed in %d ms: %d cards, %d operations, %d alert(s).%n",
+                report.elapsed().toMillis(), report.cards(), report.operations(), report.alerts());
+        } catch (SQLException e) {
+            System.out.println("SQL Error: " + e.getMessage());
+        }
+    }
+
+    private void displayRuleStatistics() {
+        List<RuleStatistics> statistics = fraudeService.getRuleStatistics();
+        System.out.println("\n--- Fraud Rules (evaluation order) ---");
+        System.out.println(String.format("%-20s | %-12s | %-9s | %-9s | %s",
+            "Rule", "Evaluations", "Hit rate", "Blocks", "Avg ns"));
+        System.out.println("-".repeat(75));
+        for (RuleStatistics rule : statistics) {
+            System.out.println(String.format("%-20s | %-12d | %8.2f%% | %-9d | %.0f",
+                rule.rule(), rule.evaluations(), rule.hitRate() * 100, rule.blocks(), rule.averageNanos()));
+        }
+
+        AlertSinkMetrics sink = fraudeService.getAlertSinkMetrics();
+        System.out.println("\n--- Alert Writer ---");
+        System.out.println("Queue: " + sink.queueDepth() + "/" + sink.queueCapacity());
+        System.out.println("Submitted: " + sink.submitted() + " | Created: " + sink.created()
+            + " | Duplicates: " + sink.duplicates() + " | Dropped: " + sink.dropped());
+        System.out.printf("Flushes: %d | Avg: %.2f ms | Max: %.2f ms | Synchronous fallbacks: %d%n",
+            sink.flushes(), sink.averageFlushMillis(), sink.maxFlushMillis(), sink.callerRuns());
+    }
+
     private void displayCardAlerts() {
         try {
             System.out.print("\nCard ID: ");
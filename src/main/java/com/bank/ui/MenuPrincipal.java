@@ -22,8 +22,8 @@ public class MenuPrincipal {
         this.scanner = new Scanner(System.in);
         this.clientService = new ClientService();
         this.cardService = new CarteService();
-        this.operationService = new OperationService();
         this.fraudService = new FraudeService();
+        this.operationService = new OperationService(fraudService);
         this.reportService = new RapportService();
 
         this.menuClient = new MenuClient(scanner, clientService);
@@ -51,6 +51,7 @@ public class MenuPrincipal {
                 case 4 -> menuFraud.display();
                 case 5 -> menuReport.display();
                 case 0 -> {
+                    fraudService.shutdown();
                     System.out.println("\nThank you for using the system. Goodbye!");
                     continueRunning = false;
                 }
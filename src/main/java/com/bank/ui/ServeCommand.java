@@ -0,0 +1,125 @@
+package com.bank.ui;
+
+import com.bank.api.ApiMetrics;
+import com.bank.api.ApiServer;
+import com.bank.dao.OperationJournal;
+import com.bank.service.AuthorizationPolicy;
+import com.bank.service.CheckpointReport;
+import com.bank.service.Decision;
+import com.bank.service.FraudStateCheckpointer;
+import com.bank.service.FraudeService;
+import com.bank.service.TopCardsTracker;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+public class ServeCommand {
+
+    public static void run(String[] args) {
+        int port = 8080;
+        int maxConcurrent = 64;
+        long queueTimeoutMillis = 100;
+        AuthorizationPolicy defaults = AuthorizationPolicy.defaults();
+        Duration budget = defaults.budget();
+        Duration persistReserve = defaults.persistReserve();
+        Decision fallback = defaults.fallback();
+        Path journalFile = null;
+        Path snapshotFile = null;
+        Duration snapshotInterval = Duration.ofSeconds(60);
+        int topCardsCapacity = TopCardsTracker.DEFAULT_CAPACITY;
+        AuthorizationPolicy policy;
+        try {
+            for (int i = 1; i < args.length; i += 2) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("missing value for " + args[i]);
+                }
+                switch (args[i]) {
+                    case "--port" -> port = Integer.parseInt(args[i + 1]);
+                    case "--max-concurrent" -> maxConcurrent = Integer.parseInt(args[i + 1]);
+                    case "--queue-timeout" -> queueTimeoutMillis = Long.parseLong(args[i + 1]);
+                    case "--budget" -> budget = Duration.ofMillis(Long.parseLong(args[i + 1]));
+                    case "--persist-reserve" -> persistReserve = Duration.ofMillis(Long.parseLong(args[i + 1]));
+                    case "--fallback" -> fallback = Decision.valueOf(args[i + 1].toUpperCase());
+                    case "--journal" -> journalFile = Path.of(args[i + 1]);
+                    case "--snapshot" -> snapshotFile = Path.of(args[i + 1]);
+                    case "--snapshot-interval" -> snapshotInterval = Duration.ofSeconds(Long.parseLong(args[i + 1]));
+                    case "--top-cards-capacity" -> topCardsCapacity = Integer.parseInt(args[i + 1]);
+                    default -> throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+            }
+            policy = new AuthorizationPolicy(budget, persistReserve, fallback);
+            TopCardsTracker.getInstance().setCapacity(topCardsCapacity);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid option: " + e.getMessage());
+            System.out.println("Usage: serve [--port 8080] [--max-concurrent 64] [--queue-timeout <ms>]"
+                + " [--budget <ms>] [--persist-reserve <ms>] [--fallback APPROVE|REVIEW|DECLINE] [--journal <file>]"
+                + " [--snapshot <file>] [--snapshot-interval <seconds>] [--top-cards-capacity 1024]");
+            return;
+        }
+
+        OperationJournal journal = null;
+        FraudStateCheckpointer checkpointer = null;
+        ApiServer server;
+        try {
+            if (journalFile != null) {
+                journal = OperationJournal.open(journalFile);
+                System.out.printf("Journaling operations to %s, %d pending from the previous run%n",
+                    journalFile, journal.metrics().pendingOperations());
+            }
+            FraudeService fraudService = new FraudeService();
+            if (snapshotFile != null) {
+                checkpointer = new FraudStateCheckpointer(fraudService, snapshotFile);
+                Optional<CheckpointReport> restored = checkpointer.restore();
+                if (restored.isPresent()) {
+                    CheckpointReport report = restored.get();
+                    System.out.printf("Restored %d cards and %d spend counters from %s, replayed %d operations in %d ms%n",
+                        report.cards(), report.spendCounters(), snapshotFile, report.replayedOperations(),
+                        report.elapsed().toMillis());
+                } else {
+                    System.out.println("No usable snapshot at " + snapshotFile + ", starting with empty fraud state");
+                }
+                checkpointer.start(snapshotInterval);
+            }
+            server = new ApiServer(port, maxConcurrent, queueTimeoutMillis, policy, fraudService);
+        } catch (IOException | SQLException e) {
+            if (journal != null) {
+                journal.close();
+            }
+            System.out.println("Server Error: " + e.getMessage());
+            return;
+        }
+
+        OperationJournal openJournal = journal;
+        FraudStateCheckpointer openCheckpointer = checkpointer;
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            if (openCheckpointer != null) {
+                openCheckpointer.close();
+            }
+            if (openJournal != null) {
+                openJournal.close();
+                System.out.printf("Journal closed, %d operations left to drain on next start%n",
+                    openJournal.metrics().pendingOperations());
+            }
+            ApiMetrics metrics = server.metrics();
+            System.out.printf("%nStopped. %d requests rejected by the concurrency limit%n", metrics.rejected());
+            metrics.routes().forEach((route, latency) -> System.out.println("  " + route + ": " + latency));
+            stopped.countDown();
+        }));
+
+        server.start();
+        System.out.printf("API listening on port %d (%s, at most %d concurrent requests). Ctrl+C to stop.%n",
+            server.port(), server.metrics().executor(), maxConcurrent);
+        System.out.printf("Authorization budget %d ms, fallback %s%n", policy.budget().toMillis(), policy.fallback());
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
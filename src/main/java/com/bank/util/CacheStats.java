@@ -0,0 +1,16 @@
+package com.bank.util;
+
+public record CacheStats(
+    int size,
+    int maxSize,
+    long hits,
+    long misses,
+    long evictions,
+    long expirations,
+    long invalidations
+) {
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
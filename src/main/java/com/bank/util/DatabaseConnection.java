@@ -1,7 +1,6 @@
 package com.bank.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DatabaseConnection {
@@ -9,26 +8,41 @@ public class DatabaseConnection {
     private static final String USER = "hemmi";
     private static final String PASSWORD = "031203";
 
-    private Connection connection = null;
+    private static final int MIN_POOL_SIZE = 2;
+    private static final int MAX_POOL_SIZE = 16;
+    private static final long ACQUIRE_TIMEOUT_MILLIS = 5_000;
+    private static final long IDLE_TIMEOUT_MILLIS = 300_000;
+    private static final long LEAK_THRESHOLD_MILLIS = 60_000;
 
-    private static DatabaseConnection instance = null;
+    private static volatile DatabaseConnection instance;
+
+    private final ConnectionPool pool;
 
     private DatabaseConnection() {
+        this.pool = new ConnectionPool(URL, USER, PASSWORD, MIN_POOL_SIZE, MAX_POOL_SIZE,
+            ACQUIRE_TIMEOUT_MILLIS, IDLE_TIMEOUT_MILLIS, LEAK_THRESHOLD_MILLIS);
     }
 
-
     public static DatabaseConnection getInstance() throws SQLException {
-        if (instance == null || instance.connection == null || instance.connection.isClosed()) {
-            DatabaseConnection dbConnection = new DatabaseConnection();
-            Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
-            dbConnection.connection = conn;
-            instance = dbConnection;
-            return dbConnection;
+        DatabaseConnection current = instance;
+        if (current == null) {
+            synchronized (DatabaseConnection.class) {
+                current = instance;
+                if (current == null) {
+                    current = new DatabaseConnection();
+                    current.pool.warmUp();
+                    instance = current;
+                }
+            }
         }
-        return instance;
+        return current;
+    }
+
+    public Connection getConnection() throws SQLException {
+        return pool.getConnection();
     }
 
-    public Connection getConnection() {
-        return connection;
+    public PoolMetrics getPoolMetrics() {
+        return pool.metrics();
     }
 }
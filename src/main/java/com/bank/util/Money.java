@@ -0,0 +1,42 @@
+package com.bank.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amounts as a long number of cents. Rules, counters and rollups work on cents
+ * so the hot paths neither allocate nor do arbitrary-precision arithmetic;
+ * {@link BigDecimal} is only used where amounts enter or leave the application.
+ * Conversions and sums fail with {@link ArithmeticException} instead of wrapping.
+ */
+public final class Money {
+    private Money() {
+    }
+
+    /**
+     * Converts to cents, rounding half up like the NUMERIC(…, 2) columns do.
+     */
+    public static long toCents(BigDecimal amount) {
+        try {
+            return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Amount out of range: " + amount.toPlainString());
+        }
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public static long add(long cents, long otherCents) {
+        try {
+            return Math.addExact(cents, otherCents);
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Amount overflow: " + cents + " + " + otherCents + " cents");
+        }
+    }
+
+    public static String format(long cents) {
+        return toBigDecimal(cents).toPlainString();
+    }
+}
@@ -0,0 +1,14 @@
+package com.bank.util;
+
+public record PoolMetrics(
+    int active,
+    int idle,
+    int total,
+    int maxSize,
+    int waiting,
+    long borrows,
+    long timeouts,
+    long validationFailures,
+    long leaksDetected,
+    LatencyHistogram.Snapshot waitTime
+) {}
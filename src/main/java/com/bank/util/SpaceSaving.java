@@ -0,0 +1,173 @@
+package com.bank.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Space-Saving heavy-hitter sketch over int keys. It keeps at most
+ * {@code capacity} counters in a min-heap; a new key replaces the smallest counter
+ * and inherits its count as error. Every reported count is an overestimate by at
+ * most {@code error}, and any key occurring more than total/capacity times is
+ * guaranteed to be present. With no more distinct keys than capacity the counts
+ * are exact.
+ */
+public class SpaceSaving {
+    private final int capacity;
+    private final int[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<Integer, Integer> positions;
+    private int size;
+
+    public record Entry(int key, long count, long error) {
+        public long guaranteedCount() {
+            return count - error;
+        }
+    }
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Sketch capacity must be positive");
+        }
+
+        this.capacity = capacity;
+        this.keys = new int[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized void add(int key, long weight) {
+        Integer position = positions.get(key);
+        if (position != null) {
+            counts[position] += weight;
+            siftDown(position);
+            return;
+        }
+
+        if (size < capacity) {
+            keys[size] = key;
+            counts[size] = weight;
+            errors[size] = 0;
+            positions.put(key, size);
+            siftUp(size++);
+            return;
+        }
+
+        positions.remove(keys[0]);
+        keys[0] = key;
+        errors[0] = counts[0];
+        counts[0] += weight;
+        positions.put(key, 0);
+        siftDown(0);
+    }
+
+    public synchronized void clear() {
+        positions.clear();
+        size = 0;
+    }
+
+    public synchronized List<Entry> top(int k) {
+        List<Entry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new Entry(keys[i], counts[i], errors[i]));
+        }
+        return largest(entries, k);
+    }
+
+    /**
+     * Merges sketches that cover disjoint parts of a stream. A key missing from a
+     * full sketch may still have occurred there up to that sketch's minimum count,
+     * which is added to both its count and its error.
+     */
+    public static List<Entry> merge(List<SpaceSaving> sketches, int k) {
+        List<List<Entry>> parts = new ArrayList<>(sketches.size());
+        List<Set<Integer>> members = new ArrayList<>(sketches.size());
+        long[] floors = new long[sketches.size()];
+        for (int i = 0; i < sketches.size(); i++) {
+            SpaceSaving sketch = sketches.get(i);
+            synchronized (sketch) {
+                parts.add(sketch.top(sketch.size));
+                members.add(new HashSet<>(sketch.positions.keySet()));
+                floors[i] = sketch.size == sketch.capacity ? sketch.counts[0] : 0;
+            }
+        }
+
+        Map<Integer, long[]> merged = new HashMap<>();
+        for (int i = 0; i < parts.size(); i++) {
+            for (Entry entry : parts.get(i)) {
+                long[] totals = merged.computeIfAbsent(entry.key(), key -> new long[2]);
+                totals[0] += entry.count();
+                totals[1] += entry.error();
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>(merged.size());
+        for (Map.Entry<Integer, long[]> candidate : merged.entrySet()) {
+            long count = candidate.getValue()[0];
+            long error = candidate.getValue()[1];
+            for (int i = 0; i < parts.size(); i++) {
+                if (floors[i] > 0 && !members.get(i).contains(candidate.getKey())) {
+                    count += floors[i];
+                    error += floors[i];
+                }
+            }
+            entries.add(new Entry(candidate.getKey(), count, error));
+        }
+        return largest(entries, k);
+    }
+
+    private static List<Entry> largest(List<Entry> entries, int k) {
+        entries.sort(Comparator.comparingLong(Entry::count).reversed().thenComparingInt(Entry::key));
+        return entries.size() > k ? new ArrayList<>(entries.subList(0, k)) : entries;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (counts[parent] <= counts[index]) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = index * 2 + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left + 1 < size && counts[left + 1] < counts[left] ? left + 1 : left;
+            if (counts[index] <= counts[smallest]) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int key = keys[a];
+        long count = counts[a];
+        long error = errors[a];
+        keys[a] = keys[b];
+        counts[a] = counts[b];
+        errors[a] = errors[b];
+        keys[b] = key;
+        counts[b] = count;
+        errors[b] = error;
+        positions.put(keys[a], a);
+        positions.put(keys[b], b);
+    }
+}
@@ -0,0 +1,42 @@
+package com.bank.dao;
+
+import com.bank.entity.StatutCarte;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CarteDAOTest {
+
+    @Test
+    void suspensionNeverAppliesToABlockedCard() {
+        assertEquals(List.of("ACTIVE"), from(StatutCarte.SUSPENDED));
+    }
+
+    @Test
+    void blockAppliesToActiveAndSuspendedCards() {
+        assertEquals(List.of("ACTIVE", "SUSPENDED"), from(StatutCarte.BLOCKED));
+    }
+
+    @Test
+    void activationLiftsSuspensionsAndBlocks() {
+        assertEquals(List.of("SUSPENDED", "BLOCKED"), from(StatutCarte.ACTIVE));
+    }
+
+    @Test
+    void noStatusIsAllowedFromItself() {
+        for (StatutCarte status : StatutCarte.values()) {
+            List<Object> allowed = from(status);
+            assertFalse(allowed.contains(status.name()), status.name());
+            assertTrue(allowed.size() > 0, status.name());
+        }
+    }
+
+    private static List<Object> from(StatutCarte status) {
+        return Arrays.asList(CarteDAO.allowedFrom(status));
+    }
+}
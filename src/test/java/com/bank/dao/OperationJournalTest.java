@@ -0,0 +1,188 @@
+package com.bank.dao;
+
+import com.bank.entity.OperationCarte;
+import com.bank.entity.TypeOperation;
+import com.bank.util.Money;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OperationJournalTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 2, 10, 15, 30, 123_000_000);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void acknowledgedOperationsAreReplayedAfterRestart() throws Exception {
+        Path file = dir.resolve("operations.journal");
+        FakeOperationDAO down = new FakeOperationDAO(true);
+        List<OperationCarte> acknowledged;
+        try (OperationJournal journal = OperationJournal.open(file, 10, 10, down, new FakeCarteDAO())) {
+            acknowledged = List.of(
+                journal.append(operation(1, "12.50", "Rabat")),
+                journal.append(operation(1, "7.00", null)),
+                journal.append(operation(2, "300.00", "Tanger")));
+            assertEquals(2, journal.pending(1).size());
+        }
+        assertTrue(down.inserted.isEmpty());
+
+        FakeOperationDAO up = new FakeOperationDAO(false);
+        try (OperationJournal journal = OperationJournal.open(file, 10, 10, up, new FakeCarteDAO())) {
+            awaitTrue(() -> journal.metrics().pendingOperations() == 0, 5_000);
+        }
+        assertEquals(acknowledged, up.inserted);
+    }
+
+    @Test
+    void recordFailingItsChecksumIsCutOffWithWhatFollows() throws Exception {
+        Path file = dir.resolve("operations.journal");
+        OperationCarte kept;
+        try (OperationJournal journal = OperationJournal.open(file, 10, 10, new FakeOperationDAO(true), new FakeCarteDAO())) {
+            kept = journal.append(operation(1, "12.50", "Rabat"));
+            journal.append(operation(1, "20.00", "Casablanca"));
+        }
+        long size = Files.size(file);
+        flipLastByte(file);
+
+        try (OperationJournal journal = OperationJournal.open(file, 10, 10, new FakeOperationDAO(true), new FakeCarteDAO())) {
+            assertEquals(List.of(kept), journal.pending(1));
+            assertTrue(journal.metrics().durableBytes() < size);
+            assertEquals(journal.metrics().durableBytes(), Files.size(file));
+        }
+    }
+
+    @Test
+    void tornRecordAtTheEndIsCutOff() throws Exception {
+        Path file = dir.resolve("operations.journal");
+        OperationCarte kept;
+        try (OperationJournal journal = OperationJournal.open(file, 10, 10, new FakeOperationDAO(true), new FakeCarteDAO())) {
+            kept = journal.append(operation(3, "1.00", "Fes"));
+        }
+        long size = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 40, 1, 2}));
+        }
+
+        try (OperationJournal journal = OperationJournal.open(file, 10, 10, new FakeOperationDAO(true), new FakeCarteDAO())) {
+            assertEquals(List.of(kept), journal.pending(3));
+        }
+        assertEquals(size, Files.size(file));
+    }
+
+    @Test
+    void refusedOperationIsDeadLetteredAndRefundedOnce() throws Exception {
+        Path file = dir.resolve("operations.journal");
+        FakeOperationDAO operations = new FakeOperationDAO(false);
+        operations.refusedCards.add(2);
+        FakeCarteDAO cards = new FakeCarteDAO();
+
+        OperationCarte accepted;
+        try (OperationJournal journal = OperationJournal.open(file, 10, 10, operations, cards)) {
+            accepted = journal.append(operation(1, "12.50", "Rabat"));
+            journal.append(operation(2, "40.25", "Tanger"));
+            awaitTrue(() -> journal.metrics().pendingOperations() == 0, 5_000);
+            assertEquals(1, journal.metrics().deadLettered());
+        }
+        assertEquals(List.of(accepted), operations.inserted);
+        assertEquals(Map.of(2, 40_25L), cards.credited);
+        assertTrue(Files.size(dir.resolve("operations.journal.dead")) > 0);
+
+        // replay the whole journal, as after a crash before the offset was written
+        Files.delete(dir.resolve("operations.journal.offset"));
+        try (OperationJournal journal = OperationJournal.open(file, 10, 10, operations, cards)) {
+            awaitTrue(() -> journal.metrics().pendingOperations() == 0, 5_000);
+            assertEquals(0, journal.metrics().deadLettered());
+        }
+        assertEquals(Map.of(2, 40_25L), cards.credited);
+        assertEquals(List.of(accepted), operations.inserted);
+    }
+
+    private static OperationCarte operation(int cardId, String amount, String location) {
+        return new OperationCarte(0, NOW, new BigDecimal(amount), TypeOperation.PURCHASE, location, cardId);
+    }
+
+    private static void flipLastByte(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            last.put(0, (byte) ~last.get(0));
+            channel.write(last.rewind(), channel.size() - 1);
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, long millis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + millis;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met within " + millis + " ms");
+            Thread.sleep(10);
+        }
+    }
+
+    private static class FakeOperationDAO extends OperationDAO {
+        final boolean down;
+        final Set<Integer> refusedCards = ConcurrentHashMap.newKeySet();
+        final List<OperationCarte> inserted = new CopyOnWriteArrayList<>();
+        private final AtomicInteger lastId = new AtomicInteger();
+
+        FakeOperationDAO(boolean down) {
+            this.down = down;
+        }
+
+        @Override
+        int[] reserveIds(int count) {
+            int[] ids = new int[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = lastId.incrementAndGet();
+            }
+            return ids;
+        }
+
+        @Override
+        void insertWithIds(List<OperationCarte> operations) throws SQLException {
+            if (down) {
+                throw new SQLException("Connection refused", "08001");
+            }
+            for (OperationCarte operation : operations) {
+                if (refusedCards.contains(operation.cardId())) {
+                    throw new SQLException("Card " + operation.cardId() + " does not exist", "23503");
+                }
+            }
+            for (OperationCarte operation : operations) {
+                if (inserted.stream().noneMatch(existing -> existing.id() == operation.id())) {
+                    inserted.add(operation);
+                }
+            }
+        }
+    }
+
+    private static class FakeCarteDAO extends CarteDAO {
+        final Map<Integer, Long> credited = new ConcurrentHashMap<>();
+
+        @Override
+        public boolean creditBalance(int cardId, BigDecimal amount) {
+            credited.merge(cardId, Money.toCents(amount), Long::sum);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.bank.service;
+
+import com.bank.dao.AlerteDAO;
+import com.bank.entity.AlerteFraude;
+import com.bank.entity.NiveauAlerte;
+import com.bank.entity.StatutCarte;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlertSinkTest {
+
+    @Test
+    void flushReportsAFailedBatchSinceTheMark() throws Exception {
+        FakeAlerteDAO dao = new FakeAlerteDAO();
+        try (AlertSink sink = new AlertSink(dao, 100, 10, 5, 100)) {
+            long mark = sink.mark();
+            dao.failing = true;
+            sink.submit(hit("A"));
+
+            assertThrows(SQLException.class, () -> sink.flush(mark));
+
+            dao.failing = false;
+            long next = sink.mark();
+            sink.submit(hit("B"));
+            sink.flush(next);
+            assertEquals(1, sink.metrics().created());
+        }
+    }
+
+    @Test
+    void failedCallerRunsWriteDoesNotHangFlush() throws Exception {
+        FakeAlerteDAO dao = new FakeAlerteDAO();
+        CountDownLatch release = new CountDownLatch(1);
+        dao.gate = release;
+        try (AlertSink sink = new AlertSink(dao, 1, 1, 1, 1)) {
+            long mark = sink.mark();
+            sink.submit(hit("held"));
+            assertTrue(dao.entered.await(5, TimeUnit.SECONDS), "flusher should pick up the first hit");
+            sink.submit(hit("queued"));
+
+            dao.failing = true;
+            assertThrows(SQLException.class, () -> sink.submit(hit("caller-runs")));
+            assertEquals(1, sink.metrics().callerRuns());
+
+            dao.failing = false;
+            release.countDown();
+            AtomicReference<Throwable> outcome = new AtomicReference<>();
+            Thread flushing = new Thread(() -> {
+                try {
+                    sink.flush(mark);
+                } catch (Throwable t) {
+                    outcome.set(t);
+                }
+            });
+            flushing.start();
+            flushing.join(5_000);
+
+            assertFalse(flushing.isAlive(), "flush must not wait for the failed caller-runs write");
+            assertTrue(outcome.get() instanceof SQLException, "flush must report the failed write");
+        }
+    }
+
+    @Test
+    void flushPassesWhenNothingFailed() throws Exception {
+        FakeAlerteDAO dao = new FakeAlerteDAO();
+        try (AlertSink sink = new AlertSink(dao, 100, 10, 5, 100)) {
+            long mark = sink.mark();
+            sink.submit(hit("A"));
+            sink.submit(hit("A"));
+            sink.flush(mark);
+
+            assertEquals(1, sink.metrics().created());
+            assertEquals(1, sink.metrics().duplicates());
+        }
+    }
+
+    @Test
+    void cardActionsAreHandedToTheDaoWithTheirAlerts() throws Exception {
+        FakeAlerteDAO dao = new FakeAlerteDAO();
+        try (AlertSink sink = new AlertSink(dao, 100, 10, 5, 100)) {
+            long mark = sink.mark();
+            sink.submit(new FraudHit(1, "blocked", NiveauAlerte.CRITICAL, FraudAction.BLOCK, "block"));
+            sink.submit(new FraudHit(2, "suspended", NiveauAlerte.CRITICAL, FraudAction.SUSPEND, "suspend"));
+            sink.submit(hit("info"));
+            sink.flush(mark);
+
+            assertEquals(Map.of("block", StatutCarte.BLOCKED, "suspend", StatutCarte.SUSPENDED), dao.cardStatuses);
+        }
+    }
+
+    private static FraudHit hit(String key) {
+        return new FraudHit(1, "test", NiveauAlerte.INFO, FraudAction.NONE, key);
+    }
+
+    private static class FakeAlerteDAO extends AlerteDAO {
+        private final Set<String> saved = ConcurrentHashMap.newKeySet();
+        private final Map<String, StatutCarte> cardStatuses = new ConcurrentHashMap<>();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private volatile CountDownLatch gate;
+        private volatile boolean failing;
+
+        @Override
+        public List<AlerteFraude> saveAllIfAbsent(List<AlerteFraude> alerts, Map<String, StatutCarte> cardStatusByKey)
+                throws SQLException {
+            entered.countDown();
+            CountDownLatch waitFor = gate;
+            if (waitFor != null) {
+                gate = null;
+                try {
+                    waitFor.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failing) {
+                throw new SQLException("database unavailable");
+            }
+            cardStatuses.putAll(cardStatusByKey);
+            List<AlerteFraude> created = new ArrayList<>();
+            for (AlerteFraude alert : alerts) {
+                if (saved.add(alert.dedupKey())) {
+                    created.add(alert);
+                }
+            }
+            return created;
+        }
+    }
+}
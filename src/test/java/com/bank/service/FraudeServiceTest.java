@@ -0,0 +1,94 @@
+package com.bank.service;
+
+import com.bank.dao.OperationDAO;
+import com.bank.dao.SpendCounterState;
+import com.bank.entity.OperationCarte;
+import com.bank.entity.TypeOperation;
+import com.bank.service.rule.MultipleAttemptsRule;
+import com.bank.service.rule.RulePipeline;
+import com.bank.service.rule.VelocityStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FraudeServiceTest {
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 2, 9, 0);
+
+    @TempDir
+    Path dir;
+
+    private FraudeService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+        OperationDAO.invalidateSpendCounters();
+    }
+
+    @Test
+    void replayAfterRestoreAddsOnlyWhatTheSnapshotLacks() throws Exception {
+        VelocityStore saved = new VelocityStore(5);
+        record(saved, operation(10, 1, 0, "Rabat"));
+        record(saved, operation(12, 1, 5, "Tanger"));
+        Path file = dir.resolve("fraud-state.snap");
+        StateSnapshotFile.write(file, 9, saved, List.of(new SpendCounterState(1, false, (int) START.toLocalDate().toEpochDay(), 200_00, 12)));
+        StateSnapshotFile.Contents contents = StateSnapshotFile.read(file).orElseThrow();
+
+        service = new FraudeService(new RulePipeline(List.of(new MultipleAttemptsRule(5, 60))));
+        service.restoreVelocity(contents.velocity());
+        OperationDAO.invalidateSpendCounters();
+        OperationDAO.restoreSpendCounters(contents.spend());
+
+        // catch-up starts at the previous checkpoint's id, so it sees 10 and 12 again
+        List<OperationCarte> replayed = List.of(
+            operation(10, 1, 0, "Rabat"),
+            operation(11, 2, 1, "Fes"),
+            operation(12, 1, 5, "Tanger"),
+            operation(13, 1, 7, "Oujda"));
+        boolean[] applied = new boolean[replayed.size()];
+        for (int i = 0; i < replayed.size(); i++) {
+            OperationDAO.replaySpend(replayed.get(i));
+            applied[i] = service.replay(replayed.get(i));
+        }
+
+        assertFalse(applied[0]);
+        assertFalse(applied[1], "card without a restored ring loads its history on first use");
+        assertFalse(applied[2]);
+        assertTrue(applied[3]);
+
+        VelocityStore velocity = service.velocitySnapshot();
+        assertFalse(velocity.contains(2));
+        int slot = velocity.slotOf(1);
+        assertEquals(3, velocity.size(slot));
+        assertEquals(13, velocity.operationId(slot, 0));
+        assertEquals("Oujda", velocity.locationName(velocity.location(slot, 0)));
+        assertEquals(12, velocity.operationId(slot, 1));
+        assertEquals(10, velocity.operationId(slot, 2));
+
+        SpendCounterState day = OperationDAO.spendCounterStates().stream()
+            .filter(state -> state.cardId() == 1 && !state.monthly())
+            .findFirst().orElseThrow();
+        assertEquals(300_00, day.cents());
+        assertEquals(13, day.loadedUpToId());
+    }
+
+    private static OperationCarte operation(int id, int cardId, int minutes, String location) {
+        return new OperationCarte(id, START.plusMinutes(minutes), 100_00, TypeOperation.PURCHASE, location, cardId);
+    }
+
+    private static void record(VelocityStore store, OperationCarte operation) {
+        store.record(operation.cardId(), operation.id(), operation.date().toEpochSecond(ZoneOffset.UTC),
+            operation.amountCents(), store.internLocation(operation.location()));
+    }
+}
@@ -0,0 +1,56 @@
+package com.bank.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class IngestionSchedulerTest {
+
+    @Test
+    void taskNotStartedWithinTheTimeoutIsSkipped() throws Exception {
+        try (IngestionScheduler scheduler = new IngestionScheduler(1, 10)) {
+            CountDownLatch release = new CountDownLatch(1);
+            scheduler.submit(1, () -> {
+                await(release, 5_000);
+                return null;
+            });
+
+            AtomicBoolean ran = new AtomicBoolean();
+            String answer = scheduler.call(1, () -> {
+                ran.set(true);
+                return "ran";
+            }, TimeUnit.MILLISECONDS.toNanos(20), "timed out");
+
+            release.countDown();
+            scheduler.call(1, () -> null);
+            assertEquals("timed out", answer);
+            assertFalse(ran.get(), "a skipped task must never run");
+        }
+    }
+
+    @Test
+    void taskStartedBeforeTheTimeoutIsWaitedFor() throws Exception {
+        try (IngestionScheduler scheduler = new IngestionScheduler(1, 10)) {
+            CountDownLatch never = new CountDownLatch(1);
+            String answer = scheduler.call(1, () -> {
+                await(never, 50);
+                return "ran";
+            }, TimeUnit.MILLISECONDS.toNanos(20), "timed out");
+
+            assertEquals("ran", answer);
+        }
+    }
+
+    private static void await(CountDownLatch latch, long millis) {
+        try {
+            latch.await(millis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.bank.service;
+
+import com.bank.dao.SpendCounterState;
+import com.bank.service.rule.VelocityStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StateSnapshotFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void snapshotReadsBackWhatWasWritten() throws Exception {
+        VelocityStore velocity = new VelocityStore(4);
+        velocity.record(7, 10, 1_000, 12_50, velocity.internLocation("Rabat"));
+        velocity.record(7, 11, 1_060, 99_00, velocity.internLocation(null));
+        velocity.record(9, 12, 2_000, 5_00, velocity.internLocation("Tanger"));
+        List<SpendCounterState> spend = List.of(
+            new SpendCounterState(7, false, 20_000, 111_50, 11),
+            new SpendCounterState(9, true, 650, 5_00, 12));
+        Path file = dir.resolve("fraud-state.snap");
+
+        long bytes = StateSnapshotFile.write(file, 42, velocity, spend);
+        StateSnapshotFile.Contents contents = StateSnapshotFile.read(file).orElseThrow();
+
+        assertEquals(Files.size(file), bytes);
+        assertEquals(42, contents.catchUpFromId());
+        assertEquals(spend, contents.spend());
+        VelocityStore read = contents.velocity();
+        assertEquals(2, read.cardCount());
+        int slot = read.slotOf(7);
+        assertEquals(2, read.size(slot));
+        assertEquals(11, read.operationId(slot, 0));
+        assertEquals(1_060, read.epochSecond(slot, 0));
+        assertEquals(99_00, read.amountCents(slot, 0));
+        assertNull(read.locationName(read.location(slot, 0)));
+        assertEquals(10, read.operationId(slot, 1));
+        assertEquals("Rabat", read.locationName(read.location(slot, 1)));
+        assertEquals("Tanger", read.locationName(read.location(read.slotOf(9), 0)));
+    }
+
+    @Test
+    void missingSnapshotReadsAsEmpty() throws Exception {
+        assertTrue(StateSnapshotFile.read(dir.resolve("absent.snap")).isEmpty());
+    }
+
+    @Test
+    void corruptedPayloadIsRejected() throws Exception {
+        Path file = writeSample();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            last.put(0, (byte) (last.get(0) ^ 1));
+            channel.write(last.rewind(), channel.size() - 1);
+        }
+
+        IOException error = assertThrows(IOException.class, () -> StateSnapshotFile.read(file));
+        assertTrue(error.getMessage().contains("checksum"), error.getMessage());
+    }
+
+    @Test
+    void truncatedSnapshotIsRejected() throws Exception {
+        Path file = writeSample();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        IOException error = assertThrows(IOException.class, () -> StateSnapshotFile.read(file));
+        assertTrue(error.getMessage().contains("truncated"), error.getMessage());
+    }
+
+    @Test
+    void otherVersionIsRejected() throws Exception {
+        Path file = writeSample();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, StateSnapshotFile.VERSION + 1), 4);
+        }
+
+        IOException error = assertThrows(IOException.class, () -> StateSnapshotFile.read(file));
+        assertTrue(error.getMessage().contains("version"), error.getMessage());
+    }
+
+    private Path writeSample() throws IOException {
+        VelocityStore velocity = new VelocityStore(2);
+        velocity.record(1, 1, 1_000, 10_00, velocity.internLocation("Fes"));
+        Path file = dir.resolve("fraud-state.snap");
+        StateSnapshotFile.write(file, 0, velocity, List.of(new SpendCounterState(1, false, 1, 10_00, 1)));
+        return file;
+    }
+}
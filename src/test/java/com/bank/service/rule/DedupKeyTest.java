@@ -0,0 +1,73 @@
+package com.bank.service.rule;
+
+import com.bank.entity.OperationCarte;
+import com.bank.entity.TypeOperation;
+import com.bank.service.FraudHit;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DedupKeyTest {
+    private static final int CARD = 7;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    @Test
+    void streamingAndBatchPathsProduceTheSameKeys() {
+        List<VelocityRule> rules = List.of(
+            new HighAmountRule(new BigDecimal("5000")),
+            new RapidOperationsRule(30),
+            new MultipleAttemptsRule(5, 60));
+        List<OperationCarte> history = operations(5, 6000_00);
+
+        VelocityStore store = new VelocityStore(5);
+        int slot = -1;
+        for (OperationCarte operation : history) {
+            slot = store.record(CARD, operation.id(), operation.date().toEpochSecond(ZoneOffset.UTC),
+                operation.amountCents(), store.internLocation(operation.location()));
+        }
+        OperationCarte latest = history.get(history.size() - 1);
+
+        List<OperationCarte> newestFirst = new ArrayList<>(history);
+        newestFirst.sort(Comparator.comparing(OperationCarte::date).reversed());
+
+        for (VelocityRule rule : rules) {
+            FraudHit streamed = rule.evaluateLatest(store, slot, latest);
+            assertNotNull(streamed, rule.name() + " should fire on the latest operation");
+
+            List<FraudHit> batch = new ArrayList<>();
+            rule.evaluate(newestFirst, latest.id() - 1, batch);
+            assertEquals(1, batch.size(), rule.name() + " batch hits");
+            assertEquals(batch.get(0).dedupKey(), streamed.dedupKey(), rule.name() + " key");
+        }
+    }
+
+    @Test
+    void keyHasAFixedWidthAndDependsOnOrder() {
+        String key = FraudRule.hashedKey(MultipleAttemptsRule.NAME, "1,2,3");
+        String longer = FraudRule.hashedKey(MultipleAttemptsRule.NAME, "1000000,1000001,1000002,1000003,1000004,1000005");
+
+        assertEquals(key.length(), longer.length());
+        assertTrue(key.length() <= 120, "key must fit cleDedup");
+        assertTrue(key.startsWith(MultipleAttemptsRule.NAME + ":"));
+        assertNotEquals(key, FraudRule.hashedKey(MultipleAttemptsRule.NAME, "3,2,1"));
+    }
+
+    private static List<OperationCarte> operations(int count, long amountCents) {
+        List<OperationCarte> operations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            operations.add(new OperationCarte(100 + i, START.plusMinutes(i), amountCents, TypeOperation.PURCHASE,
+                i % 2 == 0 ? "Rabat" : "Casablanca", CARD));
+        }
+        return operations;
+    }
+}
@@ -0,0 +1,43 @@
+package com.bank.service.rule;
+
+import com.bank.entity.OperationCarte;
+import com.bank.entity.TypeOperation;
+import com.bank.service.FraudHit;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RulePipelineTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    @Test
+    void batchEvaluationRunsEveryRuleAfterABlock() {
+        RulePipeline pipeline = new RulePipeline(List.of(
+            new RapidOperationsRule(30),
+            new HighAmountRule(new BigDecimal("5000"))));
+
+        List<OperationCarte> newestFirst = List.of(
+            operation(3, 60, 9000_00, "Rabat"),
+            operation(2, 10, 100_00, "Tanger"),
+            operation(1, 0, 100_00, "Rabat"));
+
+        for (int run = 0; run < 3; run++) {
+            Set<String> rules = pipeline.evaluate(newestFirst, 0).stream()
+                .map(FraudHit::dedupKey)
+                .map(key -> key.substring(0, key.indexOf(':')))
+                .collect(Collectors.toSet());
+
+            assertEquals(Set.of(RapidOperationsRule.NAME, HighAmountRule.NAME), rules);
+        }
+    }
+
+    private static OperationCarte operation(int id, int minutes, long cents, String location) {
+        return new OperationCarte(id, START.plusMinutes(minutes), cents, TypeOperation.PURCHASE, location, 7);
+    }
+}
@@ -0,0 +1,56 @@
+package com.bank.service.rule;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VelocityStoreTest {
+
+    @Test
+    void insertingPastTheCapEvictsTheIdlestCards() {
+        VelocityStore store = new VelocityStore(2, 8);
+        for (int cardId = 1; cardId <= 9; cardId++) {
+            store.record(cardId, cardId, 1_000L * cardId, 100, store.internLocation("Rabat"));
+        }
+
+        assertEquals(7, store.cardCount());
+        assertFalse(store.contains(1));
+        assertFalse(store.contains(2));
+        for (int cardId = 3; cardId <= 9; cardId++) {
+            int slot = store.slotOf(cardId);
+            assertTrue(slot >= 0, "card " + cardId);
+            assertEquals(cardId, store.operationId(slot, 0));
+        }
+    }
+
+    @Test
+    void locationsNoRingUsesAnyMoreAreReclaimed() {
+        VelocityStore store = new VelocityStore(2);
+        int bound = 2 * 1024 * store.depth();
+        for (int i = 0; i < 10 * bound; i++) {
+            store.record(1, i, i, 100, store.internLocation("Place " + i));
+            assertTrue(store.locationCount() <= bound, "location table grew to " + store.locationCount());
+        }
+    }
+
+    @Test
+    void ringsKeepTheirLocationsAcrossReclaiming() {
+        VelocityStore store = new VelocityStore(2);
+        int operations = 5 * 2 * 1024 * store.depth();
+        for (int i = 0; i < operations; i++) {
+            int cardId = i % 3;
+            store.record(cardId, i, i, 100, store.internLocation(cardId == 0 ? "Rabat" : "Place " + i));
+        }
+
+        for (int cardId = 0; cardId < 3; cardId++) {
+            int slot = store.slotOf(cardId);
+            for (int back = 0; back < store.size(slot); back++) {
+                int operationId = store.operationId(slot, back);
+                String expected = cardId == 0 ? "Rabat" : "Place " + operationId;
+                assertEquals(expected, store.locationName(store.location(slot, back)));
+            }
+        }
+    }
+}